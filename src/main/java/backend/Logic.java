@@ -3,6 +3,7 @@ package backend;
 import backend.resource.Model;
 import backend.resource.MultiModel;
 import backend.resource.TurboIssue;
+import github.GitHubClientExtended;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.logging.log4j.Logger;
 import prefs.Preferences;
@@ -10,13 +11,18 @@ import ui.UI;
 import util.Futures;
 import util.HTLog;
 import util.Utility;
+import util.exceptions.IncompleteMetadataException;
 import util.events.RepoOpenedEvent;
 import util.events.testevents.ClearLogicModelEventHandler;
 
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import static util.Futures.withResult;
@@ -30,14 +36,20 @@ public class Logic {
     protected final Preferences prefs;
 
     private RepoIO repoIO;
+    private final RefreshPolicy refreshPolicy;
     public LoginController loginController;
 
     public Logic(UIManager uiManager, Preferences prefs, boolean isTestMode, boolean enableTestJSON) {
         this.uiManager = uiManager;
         this.prefs = prefs;
         this.models = new MultiModel(prefs);
+        this.refreshPolicy = new RefreshPolicy(TimeUnit.SECONDS.toMillis(prefs.getMinRefreshInterval()),
+            TimeUnit.SECONDS.toMillis(prefs.getMaxRefreshInterval()));
 
-        repoIO = new RepoIO(isTestMode, enableTestJSON);
+        // Before any requests are made, so that they all share the pool
+        GitHubClientExtended.configureConnectionPool(prefs.getMaxConnectionsPerHost());
+        repoIO = new RepoIO(isTestMode, enableTestJSON, prefs.getStoreFormat(),
+                prefs.getStoreCompressionLevel(), prefs.isUpdatingFromEventsFeed());
         loginController = new LoginController(this);
 
         // Only relevant to testing, need a different event type to avoid race condition
@@ -68,24 +80,66 @@ public class Logic {
         return repoIO.isRepositoryValid(repoId);
     }
 
+    /**
+     * Refreshes all open repositories.
+     */
     public void refresh() {
-        String message = "Refreshing " + models.toModels().stream()
+        refresh(models.toModels());
+    }
+
+    /**
+     * Refreshes the open repositories that are due to be refreshed, each at its own interval.
+     */
+    public void refreshDue() {
+        long now = System.currentTimeMillis();
+        List<Model> due = models.toModels().stream()
+            .filter(model -> refreshPolicy.isDue(model.getRepoId(), now))
+            .collect(Collectors.toList());
+        if (due.isEmpty()) {
+            logger.info("No repositories due to be refreshed");
+            return;
+        }
+        refresh(due);
+    }
+
+    /**
+     * Refreshes the given repositories independently, so that each is shown as soon as its update
+     * completes rather than once all of them have.
+     */
+    private void refresh(List<Model> toRefresh) {
+        String message = "Refreshing " + toRefresh.stream()
             .map(Model::getRepoId)
             .collect(Collectors.joining(", "));
 
         logger.info(message);
         UI.status.displayMessage(message);
 
-        Futures.sequence(models.toModels().stream()
-            .map(repoIO::updateModel)
-            .collect(Collectors.toList()))
-                .thenApply(models::replace)
-                .thenRun(this::updateUI)
+        long startTime = System.currentTimeMillis();
+        CompletableFuture.allOf(toRefresh.stream()
+            .map(model -> refresh(model, startTime))
+            .toArray(CompletableFuture[]::new))
                 .thenCompose(n -> getRateLimitResetTime())
                 .thenApply(this::updateRemainingRate)
                 .exceptionally(Futures::log);
     }
 
+    private CompletableFuture<Void> refresh(Model model, long startTime) {
+        String repoId = model.getRepoId();
+        return repoIO.updateModelWithChanges(model).thenAccept(changes -> {
+            // Not the update signature, which updates from the events feed may keep though issues changed
+            refreshPolicy.onRefreshed(repoId, !changes.isEmpty(), startTime);
+            models.replace(changes);
+            if (!changes.isEmpty()) {
+                logger.info(HTLog.format(repoId, "Changes: %s", changes));
+            }
+            // Even without changes, as panels with filters relative to the current time may show other issues
+            uiManager.updateRepo(models, changes);
+        }).exceptionally(e -> {
+            logger.error(HTLog.format(repoId, "Could not refresh: %s", e.getLocalizedMessage()), e);
+            return null;
+        });
+    }
+
     public CompletableFuture<Boolean> openPrimaryRepository(String repoId) {
         return openRepository(repoId, true);
     }
@@ -104,6 +158,54 @@ public class Logic {
             return Futures.unit(false);
         }
         models.queuePendingRepository(repoId);
+        if (repoIO.isRepositoryStored(repoId)) {
+            return openStoredRepository(repoId);
+        }
+        return openRepositoryFromSource(repoId);
+    }
+
+    /**
+     * Shows a stored repository as soon as it is loaded from the store, then validates and updates it
+     * in the background. It was valid when it was stored, so there is no need to wait for validation
+     * before showing it. Falls back to opening it from the source if it could not be loaded.
+     */
+    private CompletableFuture<Boolean> openStoredRepository(String repoId) {
+        logger.info("Opening " + repoId + " from store");
+        UI.status.displayMessage("Opening " + repoId);
+        return repoIO.loadRepository(repoId).handle((model, e) -> {
+            if (e != null) {
+                logger.warn(HTLog.format(repoId, "Could not be loaded from store"));
+                return openRepositoryFromSource(repoId);
+            }
+            models.addPending(model);
+            updateUI();
+            UI.events.triggerEvent(new RepoOpenedEvent(repoId));
+            updateInBackground(model);
+            return Futures.unit(true);
+        }).thenCompose(opened -> opened);
+    }
+
+    private void updateInBackground(Model model) {
+        String repoId = model.getRepoId();
+        isRepositoryValid(repoId).thenCompose(valid -> {
+            if (!valid) {
+                logger.warn(HTLog.format(repoId, "Could not be validated, showing stored data only"));
+                return Futures.unit(false);
+            }
+            return repoIO.updateModelWithChanges(model)
+                    .thenAccept(changes -> {
+                        models.replace(changes);
+                        if (!changes.isEmpty()) {
+                            uiManager.updateRepo(models, changes);
+                        }
+                    })
+                    .thenCompose(n -> getRateLimitResetTime())
+                    .thenApply(this::updateRemainingRate)
+                    .thenApply(rateLimits -> true);
+        }).exceptionally(Futures::log);
+    }
+
+    private CompletableFuture<Boolean> openRepositoryFromSource(String repoId) {
         return isRepositoryValid(repoId).thenCompose(valid -> {
             if (!valid) {
                 return Futures.unit(false);
@@ -129,17 +231,34 @@ public class Logic {
 
         String currentUser = prefs.getLastLoginUsername();
 
-        return repoIO.getIssueMetadata(repoId, issues).thenApply(this::processUpdates)
+        // Cached metadata is reused for issues that have not been updated since it was downloaded
+        Map<Integer, LocalDateTime> issuesUpdatedAt = new LinkedHashMap<>();
+        models.getModelById(repoId).ifPresent(model -> issues.forEach(id -> model.getIssueById(id)
+            .ifPresent(issue -> issuesUpdatedAt.put(id, issue.getUpdatedAt()))));
+
+        // Metadata is shown a chunk at a time, as it arrives
+        return repoIO.getIssueMetadata(repoId, issuesUpdatedAt, prefs.getMetadataConnections(), chunk -> {
+                models.insertMetadata(repoId, processUpdates(chunk), currentUser);
+                updateUIAndShow();
+            })
             .thenApply(metadata -> {
                 String updatedMessage = "Received metadata from " + repoId + "!";
                 UI.status.displayMessage(updatedMessage);
-                models.insertMetadata(repoId, metadata, currentUser);
-                return metadata;
+                return true;
+            })
+            .exceptionally(e -> {
+                // What was received is shown, but the issues left out have to be requested again
+                Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+                if (!(cause instanceof IncompleteMetadataException)) {
+                    throw e instanceof CompletionException ? (CompletionException) e : new CompletionException(e);
+                }
+                logger.warn(cause.getMessage() + ": " + ((IncompleteMetadataException) cause).getSkippedIssues());
+                UI.status.displayMessage(cause.getMessage());
+                return false;
             })
-            .thenApply(Futures.tap(this::updateUIAndShow))
-            .thenCompose(n -> getRateLimitResetTime())
-            .thenApply(this::updateRemainingRate)
-            .thenApply(rateLimits -> true)
+            .thenCompose(received -> getRateLimitResetTime()
+                .thenApply(this::updateRemainingRate)
+                .thenApply(rateLimits -> received))
             .exceptionally(withResult(false));
     }
 
@@ -179,6 +298,7 @@ public class Logic {
 
     public CompletableFuture<Boolean> removeRepository(String repoId) {
         models.removeRepoModelById(repoId);
+        refreshPolicy.forget(repoId);
         return repoIO.removeRepository(repoId);
     }
 
@@ -201,6 +321,7 @@ public class Logic {
     private ImmutablePair<Integer, Long> updateRemainingRate
             (ImmutablePair<Integer, Long> rateLimits) {
         uiManager.updateRateLimits(rateLimits);
+        refreshPolicy.onRateLimit(rateLimits.left, rateLimits.right, System.currentTimeMillis());
         return rateLimits;
     }
 
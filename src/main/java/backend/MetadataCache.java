@@ -0,0 +1,180 @@
+package backend;
+
+import backend.interfaces.RepoStore;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonDeserializer;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonSerializer;
+import com.google.gson.reflect.TypeToken;
+import github.TurboIssueEvent;
+import org.apache.logging.log4j.Logger;
+import org.eclipse.egit.github.core.Comment;
+import util.HTLog;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Keeps the events and comments of issues between downloads, with the ETags they were received
+ * with and the time the issue had last been updated at then. Metadata can be reused without a
+ * request while its issue has not been updated since, and revalidated with conditional requests
+ * once it has.
+ *
+ * The cache of each repository is loaded from the store when it is first used, and kept in a
+ * file of its own next to the repository.
+ */
+public class MetadataCache {
+
+    private static final Logger logger = HTLog.get(MetadataCache.class);
+
+    public static final String EXTENSION = "metadata";
+
+    private static final Type ENTRIES_TYPE = new TypeToken<Map<Integer, Entry>>() {}.getType();
+
+    private static final Gson gson = new GsonBuilder()
+        .registerTypeAdapter(LocalDateTime.class,
+            (JsonSerializer<LocalDateTime>) (src, typeOfSrc, context) ->
+                new JsonPrimitive(src.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()))
+        .registerTypeAdapter(LocalDateTime.class,
+            (JsonDeserializer<LocalDateTime>) (json, typeOfT, context) ->
+                LocalDateTime.ofInstant(Instant.ofEpochMilli(json.getAsLong()), ZoneId.systemDefault()))
+        .registerTypeAdapter(Date.class,
+            (JsonSerializer<Date>) (src, typeOfSrc, context) -> new JsonPrimitive(src.getTime()))
+        .registerTypeAdapter(Date.class,
+            (JsonDeserializer<Date>) (json, typeOfT, context) -> new Date(json.getAsLong()))
+        .create();
+
+    /**
+     * The metadata of an issue as it was last downloaded.
+     */
+    public static class Entry {
+        public final LocalDateTime issueUpdatedAt;
+        public final List<TurboIssueEvent> events;
+        public final String eventsETag;
+        public final List<Comment> comments;
+        public final String commentsETag;
+
+        public Entry(LocalDateTime issueUpdatedAt, List<TurboIssueEvent> events, String eventsETag,
+                     List<Comment> comments, String commentsETag) {
+            this.issueUpdatedAt = issueUpdatedAt;
+            this.events = new ArrayList<>(events);
+            this.eventsETag = eventsETag;
+            this.comments = new ArrayList<>(comments);
+            this.commentsETag = commentsETag;
+        }
+
+        public IssueMetadata toMetadata() {
+            return new IssueMetadata(new ArrayList<>(events), new ArrayList<>(comments));
+        }
+    }
+
+    // Entries of each repository by issue id. Guarded by this.
+    private final Map<String, Map<Integer, Entry>> repos = new HashMap<>();
+
+    // Only one save is written at a time
+    private final Object saveLock = new Object();
+
+    public synchronized Optional<Entry> get(String repoId, int issueId) {
+        return Optional.ofNullable(getEntries(repoId).get(issueId));
+    }
+
+    public synchronized void put(String repoId, int issueId, Entry entry) {
+        getEntries(repoId).put(issueId, entry);
+    }
+
+    /**
+     * Writes the cache of a repository to the store. Returns true on failure.
+     */
+    public boolean save(String repoId) {
+        Map<Integer, Entry> entries;
+        synchronized (this) {
+            if (!repos.containsKey(repoId)) {
+                // Removed since, or never used
+                return false;
+            }
+            entries = new HashMap<>(repos.get(repoId));
+        }
+        Optional<String> path = RepoStore.getRepoPath(repoId, EXTENSION);
+        if (!path.isPresent()) {
+            return true;
+        }
+        synchronized (saveLock) {
+            try {
+                RepoStore.writeJsonFile(Paths.get(path.get()), output -> {
+                    Writer writer = new OutputStreamWriter(output, StandardCharsets.UTF_8);
+                    try {
+                        gson.toJson(entries, ENTRIES_TYPE, writer);
+                    } catch (JsonIOException e) {
+                        throw new IOException(e);
+                    }
+                    writer.flush();
+                }, RepoStore.NO_COMPRESSION);
+                return false;
+            } catch (IOException e) {
+                HTLog.error(logger, e);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Drops the cache of a repository, both in memory and in the store. Returns true on failure.
+     */
+    public boolean remove(String repoId) {
+        synchronized (this) {
+            repos.remove(repoId);
+        }
+        Optional<String> path = RepoStore.getRepoPath(repoId, EXTENSION);
+        if (!path.isPresent()) {
+            return true;
+        }
+        // So that a save under way does not write the file again after it is deleted
+        synchronized (saveLock) {
+            return Files.exists(Paths.get(path.get())) && RepoStore.deleteFile(path.get());
+        }
+    }
+
+    private Map<Integer, Entry> getEntries(String repoId) {
+        Map<Integer, Entry> entries = repos.get(repoId);
+        if (entries == null) {
+            entries = load(repoId);
+            repos.put(repoId, entries);
+        }
+        return entries;
+    }
+
+    private static Map<Integer, Entry> load(String repoId) {
+        Optional<String> path = RepoStore.getRepoPath(repoId, EXTENSION);
+        if (!path.isPresent() || !Paths.get(path.get()).toFile().exists()) {
+            return new HashMap<>();
+        }
+        try {
+            Optional<Map<Integer, Entry>> entries = RepoStore.readFile(path.get(), input ->
+                gson.<Map<Integer, Entry>>fromJson(new InputStreamReader(input, StandardCharsets.UTF_8),
+                    ENTRIES_TYPE));
+            return entries.map(HashMap::new).orElseGet(HashMap::new);
+        } catch (JsonParseException e) {
+            // Such as one written by an incompatible version; it is rebuilt as metadata is downloaded
+            HTLog.error(logger, e);
+            return new HashMap<>();
+        }
+    }
+}
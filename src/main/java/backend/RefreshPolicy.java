@@ -0,0 +1,121 @@
+package backend;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides how often each repository is refreshed, between a minimum and a maximum interval.
+ *
+ * A repository whose ETags changed since it was last refreshed is refreshed twice as often,
+ * and one whose ETags did not is refreshed less often, so busy repositories stay fresh while
+ * idle ones are rarely polled. Unchanged resources cost nothing against the rate limit, so the
+ * requests a refresh is expected to cost depend on how often the repository has changed.
+ *
+ * When the refreshes expected before the rate limit resets would cost more requests than remain,
+ * all intervals are stretched in proportion, up to the maximum.
+ */
+public class RefreshPolicy {
+
+    // Issues, labels, milestones and collaborators, when all have changed
+    private static final int REQUESTS_PER_UPDATE = 4;
+
+    private static final double SLOWDOWN = 1.5;
+    private static final double SPEEDUP = 2;
+
+    // Weight of the latest refresh in the estimated rate of change
+    private static final double CHANGE_RATE_WEIGHT = 0.2;
+
+    // Refreshes are started on ticks of a timer, which may fire slightly early
+    private static final long TOLERANCE = TimeUnit.SECONDS.toMillis(1);
+
+    private static class RepoState {
+        long interval;
+        long lastRefreshTime;
+        // Fraction of recent refreshes in which the repository had changed
+        double changeRate = 1;
+
+        RepoState(long interval) {
+            this.interval = interval;
+        }
+    }
+
+    private final long minInterval;
+    private final long maxInterval;
+
+    // Guarded by this
+    private final Map<String, RepoState> repos = new HashMap<>();
+    private double quotaFactor = 1;
+
+    /**
+     * @param minInterval the shortest interval between refreshes of a repository, in milliseconds
+     * @param maxInterval the longest, in milliseconds
+     */
+    public RefreshPolicy(long minInterval, long maxInterval) {
+        this.minInterval = minInterval;
+        this.maxInterval = Math.max(minInterval, maxInterval);
+    }
+
+    /**
+     * Returns true if the repository should be refreshed at the given time. Repositories not
+     * refreshed before are always due.
+     */
+    public synchronized boolean isDue(String repoId, long now) {
+        RepoState repo = repos.get(repoId);
+        return repo == null || now - repo.lastRefreshTime >= getInterval(repo) - TOLERANCE;
+    }
+
+    /**
+     * Records a refresh of a repository, started at the given time.
+     *
+     * @param hasChanged whether any of the ETags of the repository changed
+     */
+    public synchronized void onRefreshed(String repoId, boolean hasChanged, long startTime) {
+        RepoState repo = repos.get(repoId);
+        if (repo == null) {
+            repo = new RepoState(minInterval);
+            repos.put(repoId, repo);
+        } else {
+            repo.interval = hasChanged
+                ? Math.max(minInterval, (long) (repo.interval / SPEEDUP))
+                : Math.min(maxInterval, (long) (repo.interval * SLOWDOWN));
+            repo.changeRate = (1 - CHANGE_RATE_WEIGHT) * repo.changeRate
+                + CHANGE_RATE_WEIGHT * (hasChanged ? 1 : 0);
+        }
+        repo.lastRefreshTime = startTime;
+    }
+
+    /**
+     * Stretches intervals if the refreshes expected before the rate limit resets would use
+     * up the requests that remain.
+     *
+     * @param resetTime when the rate limit resets, in milliseconds since the epoch
+     */
+    public synchronized void onRateLimit(int remaining, long resetTime, long now) {
+        long timeToReset = Math.max(0, resetTime - now);
+        double expectedRequests = 0;
+        for (RepoState repo : repos.values()) {
+            double refreshes = (double) timeToReset / repo.interval;
+            expectedRequests += refreshes * repo.changeRate * REQUESTS_PER_UPDATE;
+        }
+        quotaFactor = remaining <= 0
+            ? (double) maxInterval / minInterval
+            : Math.max(1, expectedRequests / remaining);
+    }
+
+    public synchronized void forget(String repoId) {
+        repos.remove(repoId);
+    }
+
+    /**
+     * Returns the interval after which the repository is next refreshed, in milliseconds.
+     */
+    public synchronized long getInterval(String repoId) {
+        RepoState repo = repos.get(repoId);
+        return repo == null ? minInterval : getInterval(repo);
+    }
+
+    private long getInterval(RepoState repo) {
+        return Math.min(maxInterval, (long) (repo.interval * quotaFactor));
+    }
+}
@@ -1,27 +1,32 @@
 package backend;
 
+import backend.binary.BinaryStore;
 import backend.github.GitHubSource;
 import backend.interfaces.RepoSource;
 import backend.interfaces.RepoStore;
 import backend.json.JSONStore;
 import backend.json.JSONStoreStub;
 import backend.resource.Model;
+import backend.resource.ModelChanges;
 import backend.resource.TurboIssue;
+import backend.resource.serialization.SerializableChanges;
 import backend.resource.serialization.SerializableModel;
 import backend.stub.DummySource;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.logging.log4j.Logger;
 import ui.UI;
 import util.HTLog;
+import util.PlatformSpecific;
 import util.events.ShowErrorDialogEvent;
 import util.events.UpdateProgressEvent;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import static util.Futures.withResult;
@@ -31,26 +36,51 @@ public class RepoIO {
     private static final Logger logger = HTLog.get(RepoIO.class);
 
     private final RepoSource repoSource;
-    private final JSONStore jsonStore;
+    private final RepoStore repoStore;
 
     private List<String> storedRepos;
 
-    private static final int MAX_REDOWNLOAD_TRIES = 2;
-
     public RepoIO(boolean isTestMode, boolean enableTestJSON) {
+        this(isTestMode, enableTestJSON, JSONStore.FORMAT, RepoStore.NO_COMPRESSION, false);
+    }
+
+    /**
+     * @param storeFormat the format in which repositories are stored locally: JSONStore.FORMAT,
+     *                    BinaryStore.FORMAT or BinaryStore.MAPPED_FORMAT
+     * @param compressionLevel RepoStore.NO_COMPRESSION, or a GZIP compression level from 1 to 9.
+     *                         Not used in mapped mode, as compressed files cannot be mapped.
+     * @param updateFromEventsFeed whether repositories are updated from their events feed rather than
+     *                             by polling each kind of resource. Not used in test mode.
+     */
+    public RepoIO(boolean isTestMode, boolean enableTestJSON, String storeFormat, int compressionLevel,
+                  boolean updateFromEventsFeed) {
         if (isTestMode) {
             repoSource = new DummySource();
             RepoStore.enableTestDirectory();
         } else {
-            repoSource = new GitHubSource();
+            repoSource = new GitHubSource(updateFromEventsFeed);
         }
         if (isTestMode && !enableTestJSON) {
-            jsonStore = new JSONStoreStub();
+            repoStore = new JSONStoreStub();
             storedRepos = new ArrayList<>();
         } else {
-            jsonStore = new JSONStore();
-            storedRepos = new ArrayList<>(jsonStore.getStoredRepos());
+            repoStore = createStore(storeFormat, compressionLevel);
+            storedRepos = new ArrayList<>(repoStore.getStoredRepos());
+        }
+    }
+
+    private static RepoStore createStore(String storeFormat, int compressionLevel) {
+        if (BinaryStore.FORMAT.equalsIgnoreCase(storeFormat)) {
+            return new BinaryStore(false, compressionLevel);
+        }
+        if (BinaryStore.MAPPED_FORMAT.equalsIgnoreCase(storeFormat)) {
+            if (PlatformSpecific.isOnWindows()) {
+                logger.warn("Mapped store is not supported on Windows, using binary store instead");
+                return new BinaryStore();
+            }
+            return new BinaryStore(true);
         }
+        return new JSONStore(compressionLevel);
     }
 
     public List<String> getStoredRepos() {
@@ -65,23 +95,38 @@ public class RepoIO {
         return repoSource.isRepositoryValid(repoId);
     }
 
-    public CompletableFuture<Model> openRepository(String repoId) {
+    public boolean isRepositoryStored(String repoId) {
+        return getStoredRepoName(repoId).isPresent();
+    }
+
+    private Optional<String> getStoredRepoName(String repoId) {
         // The ignoreCase logic is necessary when we are opening a repo from the login dialog window
         // i.e. when the isAlreadyOpen check in Logic fails.
-        Optional<String> matchingRepoName = storedRepos.stream().filter(repoName ->
-                repoName.equalsIgnoreCase(repoId)).findFirst();
+        return storedRepos.stream().filter(repoName -> repoName.equalsIgnoreCase(repoId)).findFirst();
+    }
+
+    /**
+     * Loads a stored repository as it was last stored, without updating it from the source.
+     * Completes exceptionally if the repository could not be loaded.
+     */
+    public CompletableFuture<Model> loadRepository(String repoId) {
+        assert isRepositoryStored(repoId);
+        return repoStore.loadRepository(getStoredRepoName(repoId).orElse(repoId));
+    }
+
+    public CompletableFuture<Model> openRepository(String repoId) {
+        Optional<String> matchingRepoName = getStoredRepoName(repoId);
         if (matchingRepoName.isPresent()) {
-            // TODO avoid CI deadlock in the .exceptionally call. Explanation:
-            /* loadRepoFromStoreAsync will execute in jsonStore's single thread pool, and if
-             it has an exception then downloadRepoFromSourceBlocking will also run there. Eventually,
-             this results in jsonStore.saveRepository in updateModel being placed as another Task on the
-             same thread pool. However, since the current task is still carrying out and waiting for the second
-             task to complete, the program gets deadlocked on the CI.
-             One example of how this can happen is when storedRepos contains the repo name but the json was
-             deleted while the program is still running. */
+            // Falls back to downloading without blocking: blocking in a store task on another task
+            // for the same repository, such as the save that follows the download, would deadlock.
+            // The fallback may run in the store task that failed to load the repository.
+            // This happens, for example, when the stored file was deleted while the program is running.
             String repoToLoad = matchingRepoName.get();
             return loadRepoFromStoreAsync(repoToLoad)
-                    .exceptionally(e -> downloadRepoFromSourceBlocking(repoToLoad));
+                    .handle((model, e) -> e == null
+                        ? CompletableFuture.completedFuture(model)
+                        : downloadRepoFromSourceAsync(repoToLoad))
+                    .thenCompose(model -> model);
         } else {
             return downloadRepoFromSourceAsync(repoId);
         }
@@ -89,22 +134,20 @@ public class RepoIO {
 
     public CompletableFuture<Boolean> removeRepository(String repoId) {
         storedRepos.remove(repoId);
-        return jsonStore.removeStoredRepo(repoId);
+        return repoStore.removeStoredRepo(repoId)
+            .thenApply(storeError -> repoSource.removeMetadata(repoId) || storeError);
     }
 
     private CompletableFuture<Model> loadRepoFromStoreAsync(String repoId) {
-        return jsonStore.loadRepository(repoId)
+        return repoStore.loadRepository(repoId)
                 .thenCompose(this::updateModel);
     }
 
-    private CompletableFuture<Model> downloadRepoFromSourceAsync(String repoID) {
-        return downloadRepoFromSourceAsync(repoID, MAX_REDOWNLOAD_TRIES);
-    }
-
-    private CompletableFuture<Model> downloadRepoFromSourceAsync(String repoId, int remainingTries) {
+    private CompletableFuture<Model> downloadRepoFromSourceAsync(String repoId) {
         UI.status.displayMessage("Downloading " + repoId);
         return repoSource.downloadRepository(repoId)
-                .thenCompose(newModel -> updateModel(newModel, remainingTries))
+                .thenCompose(newModel -> updateModel(newModel, false))
+                .thenApply(changes -> changes.updated)
                 .thenApply(model -> {
                     storedRepos.add(repoId);
                     return model;
@@ -112,56 +155,77 @@ public class RepoIO {
                 .exceptionally(withResult(new Model(repoId)));
     }
 
-    private Model downloadRepoFromSourceBlocking(String repoId) {
-        try {
-            return downloadRepoFromSourceAsync(repoId).get();
-        } catch (ExecutionException | InterruptedException e) {
-            logger.info("Error while downloading " + repoId);
-            logger.error(e.getLocalizedMessage());
-
-            return new Model(repoId);
-        }
+    public CompletableFuture<Model> updateModel(Model model) {
+        return updateModelWithChanges(model).thenApply(changes -> changes.updated);
     }
 
-    public CompletableFuture<Model> updateModel(Model model) {
-        return updateModel(model, MAX_REDOWNLOAD_TRIES);
+    /**
+     * Like updateModel, but also returns what changed in the update.
+     */
+    public CompletableFuture<ModelChanges> updateModelWithChanges(Model model) {
+        return updateModel(model, true);
     }
 
-    public CompletableFuture<Model> updateModel(Model model, int remainingTries) {
+    /**
+     * @param isStored whether the model is what is currently in the store, in which case
+     *                 only the changes made to it need to be written
+     */
+    private CompletableFuture<ModelChanges> updateModel(Model model, boolean isStored) {
+        // Nothing here may block on the store: this may run in a store task, for example when
+        // falling back to downloading a repository that could not be loaded
         return repoSource.updateModel(model)
-            .thenApply(newModel -> {
-                boolean corruptedJson = false;
-                if (!model.equals(newModel)) {
-                    try {
-                        corruptedJson =
-                                jsonStore.saveRepository(newModel.getRepoId(), new SerializableModel(newModel)).get();
-                    } catch (InterruptedException | ExecutionException ex) {
-                        corruptedJson = true;
-                    }
-                } else {
-                    logger.info(HTLog.format(model.getRepoId(),
-                            "Nothing changed; not writing to store"));
-                }
-                if (corruptedJson && remainingTries > 0) {
-                    return downloadRepoFromSourceAsync(model.getRepoId(), remainingTries - 1).join();
+            .thenApply(newModel -> ModelChanges.between(model, newModel))
+            .thenCompose(changes -> saveUpdate(model, changes, isStored).thenApply(saveFailed -> {
+                // Stored data is only downloaded again when loading finds it corrupted; a failed
+                // write leaves the previous version of the file intact
+                if (saveFailed) {
+                    UI.events.triggerEvent(new ShowErrorDialogEvent("Could not sync " + model.getRepoId(),
+                            "We were not able to sync with GitHub to retrieve and store data for the repository "
+                            + model.getRepoId()
+                            + ". Please let us know if you encounter this issue consistently."
+                    ));
                 } else {
-                    if (corruptedJson && remainingTries == 0) {
-                        UI.events.triggerEvent(new ShowErrorDialogEvent("Could not sync " + model.getRepoId(),
-                                "We were not able to sync with GitHub to retrieve and store data for the repository "
-                                + model.getRepoId()
-                                + ". Please let us know if you encounter this issue consistently."
-                        ));
-                    } else {
-                        UI.status.displayMessage(model.getRepoId() + " is up to date!");
-                    }
-                    UI.events.triggerEvent(new UpdateProgressEvent(model.getRepoId()));
-                    return newModel;
+                    UI.status.displayMessage(model.getRepoId() + " is up to date!");
                 }
-            }).exceptionally(withResult(new Model(model.getRepoId())));
+                UI.events.triggerEvent(new UpdateProgressEvent(model.getRepoId()));
+                return changes;
+            })).exceptionally(e -> {
+                // The model is kept as it was, rather than taken to have lost everything
+                logger.error(HTLog.format(model.getRepoId(), "Could not update: %s", e.getLocalizedMessage()), e);
+                return ModelChanges.between(model, model);
+            });
+    }
+
+    /**
+     * Writes the updated model to the store if it changed. Only the changes are written if
+     * the model is already stored.
+     * @return a future that completes with true on failure
+     */
+    private CompletableFuture<Boolean> saveUpdate(Model model, ModelChanges changes, boolean isStored) {
+        Model newModel = changes.updated;
+        if (changes.isEmpty() && model.getUpdateSignature().equals(newModel.getUpdateSignature())) {
+            logger.info(HTLog.format(model.getRepoId(), "Nothing changed; not writing to store"));
+            return CompletableFuture.completedFuture(false);
+        }
+        CompletableFuture<Boolean> saved = isStored
+            ? repoStore.saveChanges(newModel.getRepoId(), new SerializableChanges(changes),
+                () -> new SerializableModel(newModel))
+            : repoStore.saveRepository(newModel.getRepoId(), new SerializableModel(newModel));
+        return saved.exceptionally(e -> true);
     }
 
-    public CompletableFuture<Map<Integer, IssueMetadata>> getIssueMetadata(String repoId, List<Integer> issues) {
-        return repoSource.downloadMetadata(repoId, issues);
+    /**
+     * Downloads the metadata of the given issues, passing it to onChunk a part at a time as it arrives.
+     *
+     * @param issues the ids of the issues, with the times they were last updated at
+     * @param maxConnections the maximum number of requests made at once
+     * @return all of the downloaded metadata
+     */
+    public CompletableFuture<Map<Integer, IssueMetadata>> getIssueMetadata(String repoId,
+                                                                           Map<Integer, LocalDateTime> issues,
+                                                                           int maxConnections,
+                                                                           Consumer<Map<Integer, IssueMetadata>> onChunk) {
+        return repoSource.downloadMetadata(repoId, issues, maxConnections, onChunk);
     }
 
     public CompletableFuture<List<String>> replaceIssueLabels(TurboIssue issue, List<String> labels) {
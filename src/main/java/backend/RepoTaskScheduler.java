@@ -0,0 +1,206 @@
+package backend;
+
+import backend.interfaces.RepoTask;
+import org.apache.logging.log4j.Logger;
+import util.HTLog;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Starts tasks in order of priority, holding back less urgent ones as the rate limit runs out so
+ * that requests remain for more urgent ones. Each priority below USER_ACTION has a reserve of
+ * requests it leaves untouched: its tasks are deferred while fewer requests than that remain,
+ * and started, most urgent first, once enough do again.
+ *
+ * The number of remaining requests is only known as of the last request made. While tasks are
+ * deferred, it is checked again every RECHECK_INTERVAL, which does not count against the limit.
+ *
+ * Updates of a repository are not queued up behind one another while they are deferred: a later
+ * update takes the place of one not yet started, and shares the result of one already running.
+ */
+public class RepoTaskScheduler {
+
+    private static final Logger logger = HTLog.get(RepoTaskScheduler.class);
+
+    // Requests left for user actions and visible data when starting background work
+    public static final int BACKGROUND_RESERVE = 500;
+
+    // Requests left for user actions when getting data to show
+    public static final int VISIBLE_RESERVE = 100;
+
+    public static final long RECHECK_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+
+    private final Executor executor;
+    private final IntSupplier remainingRequests;
+    private final Supplier<CompletableFuture<?>> checkRateLimit;
+    private final long recheckInterval;
+
+    // Tasks not yet started, by priority. Guarded by this.
+    private final Map<RepoTask.Priority, Queue<RepoTask<?>>> deferred = new EnumMap<>(RepoTask.Priority.class);
+    private boolean isRecheckScheduled = false;
+
+    // Tasks that update a repository, deferred or running, by repository. Guarded by this.
+    private final Map<String, RepoTask<?>> pendingUpdates = new HashMap<>();
+
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "Rate limit recheck");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * @param executor runs tasks once they are started
+     * @param remainingRequests the number of requests that remain as of the last one, or -1 if unknown
+     * @param checkRateLimit brings the number of remaining requests up to date
+     */
+    public RepoTaskScheduler(Executor executor, IntSupplier remainingRequests,
+                             Supplier<CompletableFuture<?>> checkRateLimit) {
+        this(executor, remainingRequests, checkRateLimit, RECHECK_INTERVAL);
+    }
+
+    public RepoTaskScheduler(Executor executor, IntSupplier remainingRequests,
+                             Supplier<CompletableFuture<?>> checkRateLimit, long recheckInterval) {
+        this.executor = executor;
+        this.remainingRequests = remainingRequests;
+        this.checkRateLimit = checkRateLimit;
+        this.recheckInterval = recheckInterval;
+        for (RepoTask.Priority priority : RepoTask.Priority.values()) {
+            deferred.put(priority, new ArrayDeque<>());
+        }
+    }
+
+    /**
+     * Starts a task once the rate limit allows for its priority, which is at once unless requests
+     * are running out.
+     */
+    public void schedule(RepoTask<?> task) {
+        Optional<String> updatedRepo = task.getUpdatedRepoId().map(String::toLowerCase);
+        RepoTask<?> pending;
+        boolean isPendingStarted = false;
+        synchronized (this) {
+            pending = updatedRepo.map(pendingUpdates::get).orElse(null);
+            if (pending != null) {
+                isPendingStarted = !deferred.get(pending.getPriority()).remove(pending);
+            }
+            if (!isPendingStarted) {
+                updatedRepo.ifPresent(repoId -> pendingUpdates.put(repoId, task));
+                deferred.get(task.getPriority()).add(task);
+            }
+        }
+        if (pending != null) {
+            logger.info(String.format("%s already has an update %s", updatedRepo.get(),
+                isPendingStarted ? "running" : "deferred, replacing it"));
+            if (isPendingStarted) {
+                // Its result is as recent as that of the task, which is not run
+                shareResult(pending, task);
+                return;
+            }
+            // The task is given the most recent model to update, so it is run instead
+            shareResult(task, pending);
+        }
+        if (updatedRepo.isPresent()) {
+            task.response.whenComplete((result, e) -> onUpdateFinished(updatedRepo.get(), task));
+        }
+        startTasks();
+    }
+
+    /**
+     * Completes a task that is not run with the result of one that is. Tasks updating the same
+     * repository have results of the same type.
+     */
+    @SuppressWarnings("unchecked")
+    private static void shareResult(RepoTask<?> run, RepoTask<?> notRun) {
+        CompletableFuture<Object> response = (CompletableFuture<Object>) notRun.response;
+        run.response.whenComplete((result, e) -> {
+            if (e != null) {
+                response.completeExceptionally(e);
+            } else {
+                response.complete(result);
+            }
+        });
+    }
+
+    private synchronized void onUpdateFinished(String repoId, RepoTask<?> task) {
+        pendingUpdates.remove(repoId, task);
+    }
+
+    /**
+     * Returns the number of tasks not yet started.
+     */
+    public synchronized int getDeferredCount() {
+        return deferred.values().stream().mapToInt(Queue::size).sum();
+    }
+
+    private void startTasks() {
+        List<RepoTask<?>> toStart = new ArrayList<>();
+        synchronized (this) {
+            int remaining = remainingRequests.getAsInt();
+            for (RepoTask.Priority priority : RepoTask.Priority.values()) {
+                Queue<RepoTask<?>> tasks = deferred.get(priority);
+                if (tasks.isEmpty()) {
+                    continue;
+                }
+                // Reserves only grow as priority falls, so no less urgent task can start either
+                if (!canStart(priority, remaining)) {
+                    logger.warn(String.format("%d requests remaining, deferring %d %s task(s)",
+                        remaining, tasks.size(), priority));
+                    scheduleRecheck();
+                    break;
+                }
+                toStart.addAll(tasks);
+                tasks.clear();
+            }
+        }
+        toStart.forEach(task -> executor.execute(() -> {
+            try {
+                task.run();
+            } finally {
+                // Some tasks do not complete their response when they fail
+                task.getUpdatedRepoId().ifPresent(repoId -> onUpdateFinished(repoId.toLowerCase(), task));
+            }
+        }));
+    }
+
+    private static boolean canStart(RepoTask.Priority priority, int remaining) {
+        if (remaining < 0) {
+            // Not known before the first request
+            return true;
+        }
+        switch (priority) {
+            case BACKGROUND:
+                return remaining >= BACKGROUND_RESERVE;
+            case VISIBLE:
+                return remaining >= VISIBLE_RESERVE;
+            default:
+                return true;
+        }
+    }
+
+    // Called with the lock held
+    private void scheduleRecheck() {
+        if (isRecheckScheduled) {
+            return;
+        }
+        isRecheckScheduled = true;
+        timer.schedule(() -> {
+            synchronized (this) {
+                isRecheckScheduled = false;
+            }
+            checkRateLimit.get().whenComplete((result, e) -> startTasks());
+        }, recheckInterval, TimeUnit.MILLISECONDS);
+    }
+}
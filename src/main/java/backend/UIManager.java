@@ -1,5 +1,6 @@
 package backend;
 
+import backend.resource.ModelChanges;
 import backend.resource.MultiModel;
 import javafx.application.Platform;
 import org.apache.commons.lang3.tuple.ImmutablePair;
@@ -7,6 +8,8 @@ import ui.UI;
 import util.events.ModelUpdatedEvent;
 import util.events.UpdateRateLimitsEvent;
 
+import java.util.Optional;
+
 public class UIManager {
 
     private final UI ui;
@@ -20,6 +23,16 @@ public class UIManager {
             ui.triggerEvent(new ModelUpdatedEvent(models, hasMetadata)));
     }
 
+    /**
+     * Like update, for when only the model of one repository changed, so that panels which
+     * the changes do not affect are left as they are. Panels whose filters are relative to the
+     * current time are filtered again even if nothing changed.
+     */
+    public void updateRepo(MultiModel models, ModelChanges changes) {
+        Platform.runLater(() ->
+            ui.triggerEvent(new ModelUpdatedEvent(models, false, Optional.of(changes))));
+    }
+
     public void updateNow(MultiModel models) {
         ui.triggerEvent(new ModelUpdatedEvent(models, false));
     }
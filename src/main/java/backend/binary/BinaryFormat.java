@@ -0,0 +1,49 @@
+package backend.binary;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Layout of the binary store format, shared by its reader and writer.
+ *
+ * A file consists of a header (magic number, format version, repoId and update signature),
+ * followed by a table of interned strings, then the labels, milestones, users and issues of
+ * the repository. Each of these is stored column by column: all the ids, then all the
+ * creators, and so on. Label names and user logins are stored as indices into the string
+ * table, and dates as epoch seconds.
+ */
+final class BinaryFormat {
+
+    // "HTBS" in ASCII
+    static final int MAGIC = 0x48544253;
+    static final int VERSION = 1;
+
+    static final int NO_STRING = -1;
+
+    static final int FLAG_PULL_REQUEST = 1;
+    static final int FLAG_OPEN = 1 << 1;
+    static final int FLAG_HAS_MILESTONE = 1 << 2;
+
+    private BinaryFormat() {
+    }
+
+    // Date-times are stored as seconds and nanoseconds relative to UTC regardless of the system
+    // time zone, as LocalDateTime carries no zone; this makes the conversion exact in both directions.
+
+    static long toEpochSecond(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    static LocalDateTime fromEpochSecond(long epochSecond, int nano) {
+        return LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC);
+    }
+
+    static long toEpochDay(LocalDate date) {
+        return date.toEpochDay();
+    }
+
+    static LocalDate fromEpochDay(long epochDay) {
+        return LocalDate.ofEpochDay(epochDay);
+    }
+}
@@ -0,0 +1,365 @@
+package backend.binary;
+
+import backend.UpdateSignature;
+import backend.resource.Model;
+import backend.resource.TurboIssue;
+import backend.resource.TurboLabel;
+import backend.resource.TurboMilestone;
+import backend.resource.TurboUser;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import static backend.binary.BinaryFormat.*;
+
+/**
+ * Reads a repository in the binary store format described in BinaryFormat.
+ *
+ * When reading from a mapped file, issue descriptions are not read into memory. Each issue
+ * instead records the offset of its description in the mapping, and decodes it when needed.
+ */
+final class BinaryModelReader {
+
+    // Sanity limits, so that a corrupted length does not result in a huge allocation
+    private static final int MAX_COUNT = 10_000_000;
+    private static final int MAX_STRING_LENGTH = 16 * 1024 * 1024;
+
+    private final DataInputStream in;
+    // Present when reading from a mapped file
+    private final Optional<ByteBuffer> mapped;
+
+    private String repoId;
+    private String[] strings;
+
+    private BinaryModelReader(InputStream in) {
+        this.in = new DataInputStream(in);
+        this.mapped = Optional.empty();
+    }
+
+    private BinaryModelReader(ByteBuffer mapped) {
+        this.in = new DataInputStream(new ByteBufferInputStream(mapped));
+        this.mapped = Optional.of(mapped);
+    }
+
+    /**
+     * @throws StreamCorruptedException if the data is not in the binary store format
+     */
+    public static Model readModel(InputStream in) throws IOException {
+        return new BinaryModelReader(in).model();
+    }
+
+    /**
+     * Reads a repository from a mapped file, leaving issue descriptions in the mapping.
+     * The returned Model thus refers to the mapping for as long as its issues are in use.
+     * @throws StreamCorruptedException if the data is not in the binary store format
+     */
+    public static Model readModel(ByteBuffer mapped) throws IOException {
+        return new BinaryModelReader(mapped).model();
+    }
+
+    /**
+     * Reads only the repoId and the update signature at the start of the file.
+     * @throws StreamCorruptedException if the data is not in the binary store format
+     */
+    public static ImmutablePair<String, UpdateSignature> readHeader(InputStream in) throws IOException {
+        BinaryModelReader reader = new BinaryModelReader(in);
+        UpdateSignature signature = reader.header();
+        return new ImmutablePair<>(reader.repoId, signature);
+    }
+
+    private UpdateSignature header() throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new StreamCorruptedException("Not a binary store file");
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new StreamCorruptedException("Unsupported binary store version " + version);
+        }
+        repoId = readString();
+        if (repoId == null) {
+            throw new StreamCorruptedException("Binary store file has no repoId");
+        }
+        return readUpdateSignature();
+    }
+
+    private Model model() throws IOException {
+        UpdateSignature signature = header();
+
+        strings = new String[readCount()];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = readString();
+        }
+
+        List<TurboLabel> labels = readLabels();
+        List<TurboMilestone> milestones = readMilestones();
+        List<TurboUser> users = readUsers();
+        List<TurboIssue> issues = readIssues();
+
+        return new Model(repoId, issues, labels, milestones, users, signature);
+    }
+
+    private UpdateSignature readUpdateSignature() throws IOException {
+        String issuesETag = readString();
+        String labelsETag = readString();
+        String milestonesETag = readString();
+        String collaboratorsETag = readString();
+        Date lastCheckTime = new Date(in.readLong());
+        return new UpdateSignature(issuesETag, labelsETag, milestonesETag, collaboratorsETag, lastCheckTime);
+    }
+
+    private List<TurboLabel> readLabels() throws IOException {
+        String[] names = new String[readCount()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = readInterned();
+        }
+        List<TurboLabel> labels = new ArrayList<>(names.length);
+        for (String name : names) {
+            labels.add(new TurboLabel(repoId, readString(), name));
+        }
+        return labels;
+    }
+
+    private List<TurboMilestone> readMilestones() throws IOException {
+        int count = readCount();
+        int[] ids = new int[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = in.readInt();
+        }
+        List<Optional<LocalDate>> dueDates = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            boolean hasDueDate = in.readBoolean();
+            long epochDay = in.readLong();
+            dueDates.add(hasDueDate ? Optional.of(fromEpochDay(epochDay)) : Optional.empty());
+        }
+        boolean[] isOpen = new boolean[count];
+        int[] openIssues = new int[count];
+        int[] closedIssues = new int[count];
+        for (int i = 0; i < count; i++) {
+            isOpen[i] = in.readBoolean();
+            openIssues[i] = in.readInt();
+            closedIssues[i] = in.readInt();
+        }
+        List<TurboMilestone> milestones = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            TurboMilestone milestone = new TurboMilestone(repoId, ids[i], readString());
+            milestone.setDueDate(dueDates.get(i));
+            milestone.setOpen(isOpen[i]);
+            milestone.setOpenIssues(openIssues[i]);
+            milestone.setClosedIssues(closedIssues[i]);
+            milestones.add(milestone);
+        }
+        for (TurboMilestone milestone : milestones) {
+            milestone.setDescription(readString());
+        }
+        return milestones;
+    }
+
+    private List<TurboUser> readUsers() throws IOException {
+        int count = readCount();
+        String[] logins = new String[count];
+        for (int i = 0; i < count; i++) {
+            logins[i] = readInterned();
+        }
+        String[] realNames = new String[count];
+        for (int i = 0; i < count; i++) {
+            realNames[i] = readString();
+        }
+        List<TurboUser> users = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            users.add(new TurboUser(repoId, logins[i], realNames[i], readString()));
+        }
+        return users;
+    }
+
+    private List<TurboIssue> readIssues() throws IOException {
+        int count = readCount();
+        int[] ids = new int[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = in.readInt();
+        }
+        byte[] flags = new byte[count];
+        in.readFully(flags);
+        String[] creators = new String[count];
+        for (int i = 0; i < count; i++) {
+            creators[i] = readInterned();
+        }
+        int[] assignees = new int[count];
+        for (int i = 0; i < count; i++) {
+            assignees[i] = in.readInt();
+        }
+        int[] milestones = new int[count];
+        for (int i = 0; i < count; i++) {
+            milestones[i] = in.readInt();
+        }
+        LocalDateTime[] createdAt = new LocalDateTime[count];
+        for (int i = 0; i < count; i++) {
+            createdAt[i] = readDateTime();
+        }
+
+        List<TurboIssue> issues = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            TurboIssue issue = new TurboIssue(repoId, ids[i], "", creators[i],
+                createdAt[i], (flags[i] & FLAG_PULL_REQUEST) != 0);
+            issue.setOpen((flags[i] & FLAG_OPEN) != 0);
+            if (assignees[i] != NO_STRING) {
+                issue.setAssignee(interned(assignees[i]));
+            }
+            if ((flags[i] & FLAG_HAS_MILESTONE) != 0) {
+                issue.setMilestone(milestones[i]);
+            }
+            issues.add(issue);
+        }
+        for (TurboIssue issue : issues) {
+            issue.setUpdatedAt(readDateTime());
+        }
+        for (TurboIssue issue : issues) {
+            issue.setCommentCount(in.readInt());
+        }
+        for (TurboIssue issue : issues) {
+            int labelCount = readCount();
+            List<String> labels = new ArrayList<>(labelCount);
+            for (int i = 0; i < labelCount; i++) {
+                labels.add(readInterned());
+            }
+            issue.setLabels(labels);
+        }
+        for (TurboIssue issue : issues) {
+            issue.setTitle(readString());
+        }
+        for (TurboIssue issue : issues) {
+            if (mapped.isPresent()) {
+                readMappedDescription(issue, mapped.get());
+            } else {
+                issue.setDescription(readString());
+            }
+        }
+        return issues;
+    }
+
+    private LocalDateTime readDateTime() throws IOException {
+        long epochSecond = in.readLong();
+        int nano = in.readInt();
+        try {
+            return fromEpochSecond(epochSecond, nano);
+        } catch (DateTimeException e) {
+            throw new StreamCorruptedException(e.getLocalizedMessage());
+        }
+    }
+
+    private int readCount() throws IOException {
+        int count = in.readInt();
+        if (count < 0) {
+            throw new StreamCorruptedException("Negative element count " + count);
+        }
+        if (count > MAX_COUNT) {
+            throw new StreamCorruptedException("Element count " + count + " exceeds the maximum of " + MAX_COUNT);
+        }
+        return count;
+    }
+
+    private String readInterned() throws IOException {
+        return interned(in.readInt());
+    }
+
+    private String interned(int index) throws IOException {
+        if (index < 0 || index >= strings.length) {
+            throw new StreamCorruptedException("Invalid string index " + index);
+        }
+        return strings[index];
+    }
+
+    private String readString() throws IOException {
+        int length = readStringLength();
+        if (length == NO_STRING) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int readStringLength() throws IOException {
+        int length = in.readInt();
+        if (length != NO_STRING && (length < 0 || length > MAX_STRING_LENGTH)) {
+            throw new StreamCorruptedException("Invalid string length " + length);
+        }
+        return length;
+    }
+
+    /**
+     * Skips over the description, only recording where it is in the mapping.
+     */
+    private void readMappedDescription(TurboIssue issue, ByteBuffer buffer) throws IOException {
+        int length = readStringLength();
+        if (length == NO_STRING) {
+            issue.setDescription(null);
+            return;
+        } else if (length > buffer.remaining()) {
+            throw new StreamCorruptedException("Invalid string length " + length);
+        }
+        int offset = buffer.position();
+        buffer.position(offset + length);
+        issue.setDescriptionSource(new MappedString(buffer, offset, length));
+    }
+
+    private static class MappedString implements Supplier<String> {
+
+        private final ByteBuffer buffer;
+        private final int offset;
+        private final int length;
+
+        MappedString(ByteBuffer buffer, int offset, int length) {
+            this.buffer = buffer;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public String get() {
+            // A duplicate has its own position, so that concurrent reads do not interfere
+            ByteBuffer bytes = buffer.duplicate();
+            bytes.limit(offset + length);
+            bytes.position(offset);
+            return StandardCharsets.UTF_8.decode(bytes).toString();
+        }
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            } else if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package backend.binary;
+
+import backend.UpdateSignature;
+import backend.resource.serialization.SerializableIssue;
+import backend.resource.serialization.SerializableLabel;
+import backend.resource.serialization.SerializableMilestone;
+import backend.resource.serialization.SerializableModel;
+import backend.resource.serialization.SerializableUser;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static backend.binary.BinaryFormat.*;
+
+/**
+ * Writes a repository in the binary store format described in BinaryFormat.
+ */
+final class BinaryModelWriter {
+
+    private final DataOutputStream out;
+
+    // Interned strings, in order of first appearance, and their indices
+    private final List<String> strings = new ArrayList<>();
+    private final Map<String, Integer> stringIndices = new HashMap<>();
+
+    private BinaryModelWriter(OutputStream out) {
+        this.out = new DataOutputStream(out);
+    }
+
+    public static void write(OutputStream out, SerializableModel model) throws IOException {
+        new BinaryModelWriter(out).model(model);
+    }
+
+    private void model(SerializableModel model) throws IOException {
+        internStrings(model);
+
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        writeString(model.repoId);
+        writeUpdateSignature(model.updateSignature);
+
+        out.writeInt(strings.size());
+        for (String string : strings) {
+            writeString(string);
+        }
+
+        writeLabels(model.labels);
+        writeMilestones(model.milestones);
+        writeUsers(model.users);
+        writeIssues(model.issues);
+
+        out.flush();
+    }
+
+    private void internStrings(SerializableModel model) {
+        model.labels.forEach(label -> intern(label.getActualName()));
+        model.users.forEach(user -> intern(user.getLoginName()));
+        for (SerializableIssue issue : model.issues) {
+            intern(issue.getCreator());
+            issue.getAssignee().ifPresent(this::intern);
+            issue.getLabels().forEach(this::intern);
+        }
+    }
+
+    private void intern(String string) {
+        if (!stringIndices.containsKey(string)) {
+            stringIndices.put(string, strings.size());
+            strings.add(string);
+        }
+    }
+
+    private void writeUpdateSignature(UpdateSignature signature) throws IOException {
+        UpdateSignature toWrite = signature == null ? UpdateSignature.EMPTY : signature;
+        writeString(toWrite.issuesETag);
+        writeString(toWrite.labelsETag);
+        writeString(toWrite.milestonesETag);
+        writeString(toWrite.collaboratorsETag);
+        out.writeLong(toWrite.lastCheckTime.getTime());
+    }
+
+    private void writeLabels(List<SerializableLabel> labels) throws IOException {
+        out.writeInt(labels.size());
+        for (SerializableLabel label : labels) {
+            writeInterned(label.getActualName());
+        }
+        for (SerializableLabel label : labels) {
+            writeString(label.getColour());
+        }
+    }
+
+    private void writeMilestones(List<SerializableMilestone> milestones) throws IOException {
+        out.writeInt(milestones.size());
+        for (SerializableMilestone milestone : milestones) {
+            out.writeInt(milestone.getId());
+        }
+        for (SerializableMilestone milestone : milestones) {
+            out.writeBoolean(milestone.getDueDate().isPresent());
+            out.writeLong(milestone.getDueDate().map(BinaryFormat::toEpochDay).orElse(0L));
+        }
+        for (SerializableMilestone milestone : milestones) {
+            out.writeBoolean(milestone.isOpen());
+            out.writeInt(milestone.getOpenIssues());
+            out.writeInt(milestone.getClosedIssues());
+        }
+        for (SerializableMilestone milestone : milestones) {
+            writeString(milestone.getTitle());
+        }
+        for (SerializableMilestone milestone : milestones) {
+            writeString(milestone.getDescription());
+        }
+    }
+
+    private void writeUsers(List<SerializableUser> users) throws IOException {
+        out.writeInt(users.size());
+        for (SerializableUser user : users) {
+            writeInterned(user.getLoginName());
+        }
+        for (SerializableUser user : users) {
+            writeString(user.getRealName());
+        }
+        for (SerializableUser user : users) {
+            writeString(user.getAvatarURL());
+        }
+    }
+
+    private void writeIssues(List<SerializableIssue> issues) throws IOException {
+        out.writeInt(issues.size());
+        for (SerializableIssue issue : issues) {
+            out.writeInt(issue.getId());
+        }
+        for (SerializableIssue issue : issues) {
+            out.writeByte(flagsOf(issue));
+        }
+        for (SerializableIssue issue : issues) {
+            writeInterned(issue.getCreator());
+        }
+        for (SerializableIssue issue : issues) {
+            out.writeInt(issue.getAssignee().map(stringIndices::get).orElse(NO_STRING));
+        }
+        for (SerializableIssue issue : issues) {
+            out.writeInt(issue.getMilestone().orElse(0));
+        }
+        for (SerializableIssue issue : issues) {
+            writeDateTime(issue.getCreatedAt());
+        }
+        for (SerializableIssue issue : issues) {
+            writeDateTime(issue.getUpdatedAt());
+        }
+        for (SerializableIssue issue : issues) {
+            out.writeInt(issue.getCommentCount());
+        }
+        for (SerializableIssue issue : issues) {
+            out.writeInt(issue.getLabels().size());
+            for (String label : issue.getLabels()) {
+                writeInterned(label);
+            }
+        }
+        for (SerializableIssue issue : issues) {
+            writeString(issue.getTitle());
+        }
+        // Descriptions take up most of the space, so they go last
+        for (SerializableIssue issue : issues) {
+            writeString(issue.getDescription());
+        }
+    }
+
+    private static int flagsOf(SerializableIssue issue) {
+        int flags = 0;
+        if (issue.isPullRequest()) flags |= FLAG_PULL_REQUEST;
+        if (issue.isOpen()) flags |= FLAG_OPEN;
+        if (issue.getMilestone().isPresent()) flags |= FLAG_HAS_MILESTONE;
+        return flags;
+    }
+
+    private void writeDateTime(LocalDateTime dateTime) throws IOException {
+        out.writeLong(toEpochSecond(dateTime));
+        out.writeInt(dateTime.getNano());
+    }
+
+    private void writeInterned(String string) throws IOException {
+        out.writeInt(stringIndices.get(string));
+    }
+
+    /**
+     * Unlike DataOutputStream.writeUTF, handles nulls and strings longer than 64KB,
+     * which issue descriptions may well be.
+     */
+    private void writeString(String string) throws IOException {
+        if (string == null) {
+            out.writeInt(NO_STRING);
+        } else {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+}
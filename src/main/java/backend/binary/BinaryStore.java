@@ -0,0 +1,112 @@
+package backend.binary;
+
+import backend.interfaces.RepoStore;
+import backend.json.JSONStore;
+import backend.resource.Model;
+import backend.resource.serialization.SerializableModel;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.logging.log4j.Logger;
+import util.HTLog;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+/**
+ * A compact alternative to JSONStore for large repositories. See BinaryFormat for the file layout.
+ *
+ * Repositories previously stored as JSON are migrated to the binary format the first
+ * time they are loaded.
+ *
+ * In mapped mode, stored files are memory-mapped when loaded and issue descriptions are only
+ * read from the mapping when needed, so that they do not take up heap space. This relies on
+ * saves replacing the stored file rather than rewriting it, which keeps existing mappings
+ * valid. As Windows does not allow mapped files to be replaced, mapped mode is not used there.
+ */
+public class BinaryStore extends RepoStore {
+
+    private static final Logger logger = HTLog.get(BinaryStore.class);
+
+    public static final String FORMAT = "binary";
+    public static final String MAPPED_FORMAT = "mapped";
+    public static final String EXTENSION = "bin";
+
+    private final boolean isMapped;
+
+    public BinaryStore() {
+        this(false);
+    }
+
+    public BinaryStore(boolean isMapped) {
+        this(isMapped, NO_COMPRESSION);
+    }
+
+    /**
+     * @param compressionLevel NO_COMPRESSION, or a GZIP compression level from 1 to 9.
+     *                         Compressed files cannot be mapped, so mapped stores should not compress.
+     */
+    public BinaryStore(boolean isMapped, int compressionLevel) {
+        super(compressionLevel);
+        this.isMapped = isMapped;
+    }
+
+    @Override
+    public CompletableFuture<Model> loadRepository(String repoId) {
+        CompletableFuture<Model> response = new CompletableFuture<>();
+        addTask(new ReadTask(repoId, isMapped, getCompressionLevel(), response));
+        return response;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> saveRepository(String repoId, SerializableModel model) {
+        CompletableFuture<Boolean> response = new CompletableFuture<>();
+        addTask(new WriteTask(repoId, model, getCompressionLevel(), response));
+        return response;
+    }
+
+    @Override
+    protected boolean writeSnapshot(String repoId, SerializableModel model) {
+        return WriteTask.write(repoId, model, getCompressionLevel());
+    }
+
+    @Override
+    public CompletableFuture<Boolean> removeStoredRepo(String repoId) {
+        CompletableFuture<Boolean> response = new CompletableFuture<>();
+        addTask(new DeleteTask(repoId, response));
+        return response;
+    }
+
+    /**
+     * Includes repositories that are still stored as JSON, as they will be migrated when loaded.
+     */
+    @Override
+    public List<String> getStoredRepos() {
+        List<String> result = getStoredFiles(EXTENSION).stream()
+            .map(BinaryStore::getRepositoryIdFromBinary)
+            .filter(Optional::isPresent)
+            .map(Optional::get)
+            .collect(Collectors.toCollection(ArrayList::new));
+        getStoredFiles(JSON_EXTENSION).stream()
+            .map(JSONStore::getRepositoryIdFromJson)
+            .filter(Optional::isPresent)
+            .map(Optional::get)
+            .filter(repoId -> !result.contains(repoId))
+            .forEach(result::add);
+        return result;
+    }
+
+    private static Optional<String> getRepositoryIdFromBinary(Path p) {
+        Optional<String> repoId = readFileHeader(String.valueOf(p.toAbsolutePath()),
+            BinaryModelReader::readHeader).map(ImmutablePair::getLeft);
+        if (repoId.isPresent()
+                && String.valueOf(p.getFileName()).equalsIgnoreCase(escapeRepoName(repoId.get(), EXTENSION))) {
+            logger.info("Adding " + p.getFileName() + " to stored repository list. ");
+            return repoId;
+        }
+        logger.error("Unable to load repository from " + p.getFileName());
+        return Optional.empty();
+    }
+}
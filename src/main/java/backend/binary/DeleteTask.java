@@ -0,0 +1,32 @@
+package backend.binary;
+
+import backend.interfaces.RepoStore;
+import backend.interfaces.StoreJournal;
+import backend.interfaces.StoreTask;
+import util.Utility;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.CompletableFuture;
+
+class DeleteTask extends StoreTask {
+    public final CompletableFuture<Boolean> response;
+
+    protected DeleteTask(String repoId, CompletableFuture<Boolean> response) {
+        super(repoId);
+        this.response = response;
+    }
+
+    /**
+     * Also removes the JSON file of a repository that was never migrated.
+     */
+    @Override
+    public void run() {
+        String binaryPath = RepoStore.getRepoPath(repoId, BinaryStore.EXTENSION).orElse("");
+        boolean binaryError = Files.exists(Paths.get(binaryPath)) && Utility.deleteFile(binaryPath);
+        boolean jsonError = Files.exists(Paths.get(RepoStore.getRepoPath(repoId, RepoStore.JSON_EXTENSION).orElse("")))
+            && RepoStore.delete(repoId);
+        boolean journalError = StoreJournal.delete(repoId);
+        response.complete(binaryError || jsonError || journalError);
+    }
+}
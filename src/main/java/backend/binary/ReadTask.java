@@ -0,0 +1,139 @@
+package backend.binary;
+
+import backend.interfaces.RepoStore;
+import backend.interfaces.StoreJournal;
+import backend.interfaces.StoreTask;
+import backend.json.JSONModelReader;
+import backend.resource.Model;
+import backend.resource.serialization.SerializableModel;
+import com.google.gson.JsonParseException;
+import org.apache.logging.log4j.Logger;
+import util.HTLog;
+import util.IOUtilities;
+import util.Utility;
+import util.exceptions.BinaryLoadException;
+import util.exceptions.ChecksumMismatchException;
+import util.exceptions.RepoStoreException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+class ReadTask extends StoreTask {
+
+    private static final Logger logger = HTLog.get(ReadTask.class);
+
+    public final boolean isMapped;
+    public final CompletableFuture<Model> response;
+
+    // For repositories migrated from JSON
+    private final int compressionLevel;
+
+    public ReadTask(String repoId, boolean isMapped, int compressionLevel, CompletableFuture<Model> response) {
+        super(repoId);
+        this.isMapped = isMapped;
+        this.compressionLevel = compressionLevel;
+        this.response = response;
+    }
+
+    @Override
+    public void run() {
+        try {
+            Model model = load(repoId);
+            response.complete(model);
+        } catch (RepoStoreException e) {
+            logger.error(HTLog.format(repoId, "Unable to load from store"));
+            response.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Loads repository data from the binary store into a new Model. If the repository
+     * has only been stored as JSON so far, it is migrated to the binary format.
+     * @param repoId the string id of the repository to be loaded
+     * @return a new Model containing data for the requested repository.
+     * @throws BinaryLoadException when the repository's data cannot be
+     *         retrieved from the local store or is corrupted
+     */
+    private Model load(String repoId) throws RepoStoreException {
+        Model model = loadSnapshot(repoId);
+        try {
+            return StoreJournal.replay(model);
+        } catch (IOException e) {
+            HTLog.error(logger, e);
+            throw new BinaryLoadException();
+        }
+    }
+
+    private Model loadSnapshot(String repoId) throws RepoStoreException {
+        String binaryPath = RepoStore.getRepoPath(repoId, BinaryStore.EXTENSION).orElse("");
+        if (!Files.exists(Paths.get(binaryPath))) {
+            return migrateFromJson(repoId, binaryPath);
+        }
+
+        Optional<Model> model = isMapped
+            ? readMapped(binaryPath)
+            : RepoStore.readFile(binaryPath, BinaryModelReader::readModel);
+        if (!model.isPresent()) {
+            logger.error("Unable to load " + repoId + " from binary store");
+            throw new BinaryLoadException();
+        }
+        logger.info(HTLog.format(repoId, "Data loaded from binary store"));
+        return model.get();
+    }
+
+    private static Optional<Model> readMapped(String binaryPath) {
+        try (FileChannel channel = FileChannel.open(Paths.get(binaryPath), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                // Too large for a single mapping
+                return RepoStore.readFile(binaryPath, BinaryModelReader::readModel);
+            }
+            // The mapping remains valid after the channel is closed
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            ByteBuffer content = IOUtilities.verifyingChecksum(mapped);
+            if (content.limit() >= 2 && IOUtilities.isGzipped(content.get(0), content.get(1))) {
+                // Written while compression was enabled; it is mapped again once rewritten uncompressed
+                return RepoStore.readFile(binaryPath, BinaryModelReader::readModel);
+            }
+            return Optional.of(BinaryModelReader.readModel(content));
+        } catch (ChecksumMismatchException e) {
+            logger.error(e.getLocalizedMessage(), e);
+            Utility.reportCorruptedFile(binaryPath);
+            return Optional.empty();
+        } catch (IOException e) {
+            logger.error(e.getLocalizedMessage(), e);
+            return Optional.empty();
+        }
+    }
+
+    private Model migrateFromJson(String repoId, String binaryPath) throws RepoStoreException {
+        Optional<Model> model;
+        try {
+            model = RepoStore.read(repoId, JSONModelReader::readModel);
+        } catch (NullPointerException | JsonParseException e) {
+            logger.error(HTLog.format(repoId, "JSON data to migrate is corrupted"));
+            throw new BinaryLoadException();
+        }
+        if (!model.isPresent()) {
+            logger.error("Unable to load " + repoId + " from binary store");
+            throw new BinaryLoadException();
+        }
+
+        SerializableModel toSave = new SerializableModel(model.get());
+        try {
+            RepoStore.writeFile(Paths.get(binaryPath), out -> BinaryModelWriter.write(out, toSave), compressionLevel);
+            RepoStore.delete(repoId);
+            logger.info(HTLog.format(repoId, "Migrated from JSON to binary store"));
+        } catch (IOException e) {
+            // The data is still usable; migration will be attempted again on the next load
+            HTLog.error(logger, e);
+        }
+        return model.get();
+    }
+}
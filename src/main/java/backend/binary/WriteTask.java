@@ -0,0 +1,46 @@
+package backend.binary;
+
+import backend.interfaces.RepoStore;
+import backend.interfaces.StoreJournal;
+import backend.interfaces.SaveTask;
+import backend.resource.serialization.SerializableModel;
+import org.apache.logging.log4j.Logger;
+import util.HTLog;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.concurrent.CompletableFuture;
+
+class WriteTask extends SaveTask {
+
+    private static final Logger logger = HTLog.get(WriteTask.class);
+
+    private final int compressionLevel;
+
+    public WriteTask(String repoName, SerializableModel toSave, int compressionLevel,
+                     CompletableFuture<Boolean> response) {
+        super(repoName, toSave, response);
+        this.compressionLevel = compressionLevel;
+    }
+
+    @Override
+    protected boolean save(String repoId, SerializableModel model) {
+        return write(repoId, model, compressionLevel);
+    }
+
+    /**
+     * Returns true on failure, like its JSON counterpart.
+     */
+    static boolean write(String repoId, SerializableModel model, int compressionLevel) {
+        try {
+            RepoStore.writeFile(Paths.get(RepoStore.getRepoPath(repoId, BinaryStore.EXTENSION).orElse("")),
+                out -> BinaryModelWriter.write(out, model), compressionLevel);
+            logger.info(HTLog.format(repoId, "Written to binary store"));
+            // The journal only holds changes that are now part of the written repository
+            return StoreJournal.delete(repoId);
+        } catch (IOException e) {
+            HTLog.error(logger, e);
+            return true;
+        }
+    }
+}
@@ -12,6 +12,11 @@ public class CheckRateLimitTask extends GitHubRepoTask<ImmutablePair<Integer, Lo
         super(taskRunner, repo);
     }
 
+    @Override
+    public Priority getPriority() {
+        return Priority.USER_ACTION;
+    }
+
     @Override
     public void run() {
         try {
@@ -1,47 +1,217 @@
 package backend.github;
 
 import backend.IssueMetadata;
+import backend.MetadataCache;
 import backend.interfaces.Repo;
 import backend.interfaces.TaskRunner;
 import github.TurboIssueEvent;
+import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.logging.log4j.Logger;
 import org.eclipse.egit.github.core.Comment;
 import util.HTLog;
+import util.exceptions.IncompleteMetadataException;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
+/**
+ * Downloads the events and comments of issues, several issues at a time, with the events
+ * and comments of each issue requested at once. Downloaded metadata is passed on in chunks
+ * as it arrives, before the response completes with all of it.
+ *
+ * Metadata is cached along with the time its issue was last updated at. Issues that have not
+ * been updated since are not requested again, and those that have are revalidated with the
+ * ETags of the cached metadata, so that only what changed is sent again.
+ *
+ * Issues are no longer started once the rate limit is nearly used up, so that enough requests
+ * remain for updating repositories. The response then completes with an IncompleteMetadataException
+ * listing those issues, after the metadata of the others has been passed on.
+ */
 public class DownloadMetadataTask extends GitHubRepoTask<Map<Integer, IssueMetadata>> {
 
     private static final Logger logger = HTLog.get(DownloadMetadataTask.class);
 
+    public static final int CHUNK_SIZE = 20;
+
+    // Requests left untouched for updating repositories
+    public static final int RATE_LIMIT_RESERVE = 100;
+
+    // Events and comments
+    private static final int REQUESTS_PER_ISSUE = 2;
+
     private final String repoId;
-    private final List<Integer> issueIds;
+    private final Map<Integer, LocalDateTime> issues;
+    private final MetadataCache cache;
+    private final int maxConnections;
+    private final Consumer<Map<Integer, IssueMetadata>> onChunk;
 
+    // Metadata not yet passed on. Guarded by itself.
+    private final Map<Integer, IssueMetadata> chunk = new HashMap<>();
+
+    /**
+     * @param issues the ids of the issues for which to get metadata, with the times they were last updated at
+     * @param maxConnections the maximum number of requests made at once
+     * @param onChunk called with each chunk of downloaded metadata, possibly from several threads at once
+     */
     public DownloadMetadataTask(TaskRunner taskRunner, Repo repo, String repoId,
-                                List<Integer> issueIds) {
+                                Map<Integer, LocalDateTime> issues, MetadataCache cache,
+                                int maxConnections, Consumer<Map<Integer, IssueMetadata>> onChunk) {
         super(taskRunner, repo);
         this.repoId = repoId;
-        this.issueIds = issueIds;
+        this.issues = issues;
+        this.cache = cache;
+        this.maxConnections = Math.max(1, maxConnections);
+        this.onChunk = onChunk;
+    }
+
+    @Override
+    public Priority getPriority() {
+        return Priority.VISIBLE;
     }
 
     @Override
     public void run() {
         Map<Integer, IssueMetadata> result = new HashMap<>();
 
-        issueIds.forEach(id -> {
-            List<TurboIssueEvent> events = repo.getEvents(repoId, id);
-            List<Comment> comments = repo.getComments(repoId, id);
-            IssueMetadata metadata = new IssueMetadata(events, comments);
-            result.put(id, metadata);
-        });
+        // One permit for each request, so that the requests of an issue run at once only if allowed
+        Semaphore connections = new Semaphore(maxConnections);
+        List<CompletableFuture<Void>> downloads = new ArrayList<>();
+        List<Integer> issueIds = new ArrayList<>(issues.keySet());
+        List<Integer> skippedIds = new ArrayList<>();
+        int cachedCount = 0;
+
+        try {
+            for (int i = 0; i < issueIds.size(); i++) {
+                int id = issueIds.get(i);
+                LocalDateTime updatedAt = issues.get(id);
+                Optional<MetadataCache.Entry> cached = cache.get(repoId, id);
+                if (cached.isPresent() && Objects.equals(cached.get().issueUpdatedAt, updatedAt)) {
+                    addToResult(result, id, cached.get().toMetadata());
+                    cachedCount++;
+                    continue;
+                }
+
+                connections.acquire();
+                if (isRateLimitLow()) {
+                    connections.release();
+                    skippedIds.addAll(issueIds.subList(i, issueIds.size()));
+                    logger.warn(HTLog.format(repoId, "Rate limit nearly reached, not getting metadata for "
+                        + skippedIds));
+                    break;
+                }
+                Optional<String> eventsETag = cached.map(entry -> entry.eventsETag);
+                Optional<String> commentsETag = cached.map(entry -> entry.commentsETag);
+                CompletableFuture<ImmutablePair<List<TurboIssueEvent>, String>> events =
+                    CompletableFuture.supplyAsync(() -> request(() ->
+                        repo.getUpdatedEvents(repoId, id, eventsETag.orElse(null))), taskRunner::execute)
+                    .whenComplete((newEvents, e) -> connections.release());
+                connections.acquire();
+                CompletableFuture<ImmutablePair<List<Comment>, String>> comments =
+                    CompletableFuture.supplyAsync(() -> request(() ->
+                        repo.getUpdatedComments(repoId, id, commentsETag.orElse(null))), taskRunner::execute)
+                    .whenComplete((newComments, e) -> connections.release());
+                downloads.add(events.thenCombine(comments, (newEvents, newComments) -> {
+                        MetadataCache.Entry entry = new MetadataCache.Entry(updatedAt,
+                            eventsETag.isPresent() && eventsETag.equals(Optional.ofNullable(newEvents.right))
+                                ? cached.get().events
+                                : newEvents.left,
+                            newEvents.right,
+                            commentsETag.isPresent() && commentsETag.equals(Optional.ofNullable(newComments.right))
+                                ? cached.get().comments
+                                : newComments.left,
+                            newComments.right);
+                        cache.put(repoId, id, entry);
+                        return entry.toMetadata();
+                    })
+                    .handle((metadata, e) -> {
+                        if (e != null) {
+                            // Stale metadata is better than none
+                            logger.error(HTLog.format(repoId, "Could not get metadata for #%d", id), e);
+                            return cached.map(MetadataCache.Entry::toMetadata).orElse(null);
+                        }
+                        return metadata;
+                    })
+                    .thenAccept(metadata -> {
+                        if (metadata != null) {
+                            addToResult(result, id, metadata);
+                        }
+                    }));
+            }
+            CompletableFuture.allOf(downloads.toArray(new CompletableFuture[downloads.size()])).join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            response.completeExceptionally(e);
+            return;
+        } catch (CompletionException e) {
+            response.completeExceptionally(e.getCause());
+            return;
+        }
+        publishChunk(0);
+        if (!downloads.isEmpty()) {
+            cache.save(repoId);
+        }
 
-        logger.info(HTLog.format(repoId, "Downloaded " + result.entrySet().stream()
-            .map(entry -> "(" + entry.getValue().summarise() + ") for #" + entry.getKey())
-            .collect(Collectors.joining(", "))));
+        logger.info(HTLog.format(repoId, "Got metadata for %d issues, %d of them from the cache: %s",
+            result.size(), cachedCount, result.entrySet().stream()
+                .map(entry -> "(" + entry.getValue().summarise() + ") for #" + entry.getKey())
+                .collect(Collectors.joining(", "))));
+
+        if (skippedIds.isEmpty()) {
+            response.complete(result);
+        } else {
+            response.completeExceptionally(new IncompleteMetadataException(repoId, skippedIds));
+        }
+    }
+
+    /**
+     * Makes a request, wrapping the exception it fails with so that it can be made asynchronously.
+     */
+    private static <T> T request(Callable<T> request) {
+        try {
+            return request.call();
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    private boolean isRateLimitLow() {
+        int remaining = repo.getRemainingRequests();
+        return remaining >= 0 && remaining < RATE_LIMIT_RESERVE + REQUESTS_PER_ISSUE;
+    }
+
+    private void addToResult(Map<Integer, IssueMetadata> result, int id, IssueMetadata metadata) {
+        synchronized (result) {
+            result.put(id, metadata);
+        }
+        synchronized (chunk) {
+            chunk.put(id, metadata);
+        }
+        publishChunk(CHUNK_SIZE);
+    }
 
-        response.complete(result);
+    /**
+     * Passes on the metadata not passed on yet, if there is at least minSize of it.
+     */
+    private void publishChunk(int minSize) {
+        Map<Integer, IssueMetadata> toPublish;
+        synchronized (chunk) {
+            if (chunk.isEmpty() || chunk.size() < minSize) {
+                return;
+            }
+            toPublish = new HashMap<>(chunk);
+            chunk.clear();
+        }
+        onChunk.accept(toPublish);
     }
 }
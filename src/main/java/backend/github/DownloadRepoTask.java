@@ -20,6 +20,11 @@ public class DownloadRepoTask extends GitHubRepoTask<Model> {
         this.repoId = repoId;
     }
 
+    @Override
+    public Priority getPriority() {
+        return Priority.VISIBLE;
+    }
+
     @Override
     public void run() {
         List<TurboIssue> issues = repo.getIssues(repoId);
@@ -0,0 +1,26 @@
+package backend.github;
+
+/**
+ * What is known of the events feed of a repository as of the last time it was polled.
+ */
+public class EventFeed {
+
+    // The ETag of the feed, or null if it had none
+    public final String eTag;
+
+    // The id of the newest event applied to the model, or null if the feed was empty
+    public final String lastEventId;
+
+    // The feed is not polled again before then, in milliseconds since the epoch
+    public final long nextPollTime;
+
+    // When the model was last updated without the feed, in milliseconds since the epoch
+    public final long lastFullUpdateTime;
+
+    public EventFeed(String eTag, String lastEventId, long nextPollTime, long lastFullUpdateTime) {
+        this.eTag = eTag;
+        this.lastEventId = lastEventId;
+        this.nextPollTime = nextPollTime;
+        this.lastFullUpdateTime = lastFullUpdateTime;
+    }
+}
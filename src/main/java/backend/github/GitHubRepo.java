@@ -2,8 +2,11 @@ package backend.github;
 
 import static org.eclipse.egit.github.core.client.IGitHubConstants.SEGMENT_REPOS;
 import github.GitHubClientExtended;
+import github.EventServiceExtended;
+import github.GitHubEventsResponse;
 import github.IssueServiceExtended;
 import github.LabelServiceFixed;
+import github.PageFetcher;
 import github.TurboIssueEvent;
 import github.update.IssueUpdateService;
 import github.update.LabelUpdateService;
@@ -14,13 +17,15 @@ import github.update.UserUpdateService;
 import java.io.IOException;
 import java.net.HttpURLConnection;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiFunction;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.ImmutableTriple;
@@ -30,10 +35,12 @@ import org.eclipse.egit.github.core.Issue;
 import org.eclipse.egit.github.core.Label;
 import org.eclipse.egit.github.core.RepositoryId;
 import org.eclipse.egit.github.core.client.GitHubRequest;
+import org.eclipse.egit.github.core.client.GitHubResponse;
 import org.eclipse.egit.github.core.client.NoSuchPageException;
 import org.eclipse.egit.github.core.client.PageIterator;
 import org.eclipse.egit.github.core.client.PagedRequest;
 import org.eclipse.egit.github.core.client.RequestException;
+import org.eclipse.egit.github.core.event.Event;
 import org.eclipse.egit.github.core.service.CollaboratorService;
 import org.eclipse.egit.github.core.service.IssueService;
 import org.eclipse.egit.github.core.service.MilestoneService;
@@ -51,8 +58,12 @@ public class GitHubRepo implements Repo {
 
     private static final Logger logger = HTLog.get(GitHubRepo.class);
 
+    // Seconds between polls of an events feed, when GitHub does not say
+    private static final int DEFAULT_POLL_INTERVAL = 60;
+
     private final GitHubClientExtended client = new GitHubClientExtended();
     private final IssueServiceExtended issueService = new IssueServiceExtended(client);
+    private final EventServiceExtended eventService = new EventServiceExtended(client);
     private final CollaboratorService collaboratorService = new CollaboratorService(client);
     private final LabelServiceFixed labelService = new LabelServiceFixed(client);
     private final MilestoneService milestoneService = new MilestoneService(client);
@@ -173,30 +184,26 @@ public class GitHubRepo implements Repo {
     private List<Issue> getAll(PageIterator<Issue> iterator, String repoId) {
         List<Issue> elements = new ArrayList<>();
 
-        // Assume there is at least one page
-        int knownLastPage = 1;
-
         try {
-            while (iterator.hasNext()) {
-                Collection<Issue> additions = iterator.next();
-                elements.addAll(additions);
-
-                // Compute progress
-
-                // iterator.getLastPage() only has a value after iterator.next() is called,
-                // so it's used directly in this loop. It returns the 1-based index of the last
-                // page, except when we are actually on the last page, in which case it returns -1.
-                // This portion deals with all these quirks.
-
-                knownLastPage = Math.max(knownLastPage, iterator.getLastPage());
-                int totalIssueCount = knownLastPage * PagedRequest.PAGE_SIZE;
-                // Total is approximate: always >= the actual amount
-                assert totalIssueCount >= elements.size();
-
-                float progress = ((float) elements.size() / (float) totalIssueCount);
-                UI.events.triggerEvent(new UpdateProgressEvent(repoId, progress));
-                logger.info(HTLog.format(repoId, "Loaded %d issues (%.0f%% done)",
-                    elements.size(), progress * 100));
+            // Assume there is at least one page
+            if (iterator.hasNext()) {
+                elements.addAll(iterator.next());
+
+                // iterator.getLastPage() only has a value after iterator.next() is called.
+                // It returns the 1-based index of the last page, except when we are actually
+                // on the last page, in which case it returns -1.
+                int lastPage = Math.max(1, iterator.getLastPage());
+                AtomicInteger loadedPages = new AtomicInteger(1);
+                logProgress(repoId, loadedPages.get(), lastPage);
+
+                if (lastPage > 1) {
+                    // The remaining pages are known, so they are requested at once
+                    List<Integer> remainingPages = IntStream.rangeClosed(2, lastPage).boxed()
+                        .collect(Collectors.toList());
+                    PageFetcher.getPages(client, iterator.getRequest(), remainingPages,
+                        response -> logProgress(repoId, loadedPages.incrementAndGet(), lastPage))
+                        .values().forEach(response -> elements.addAll(PageFetcher.getItems(response)));
+                }
             }
             UI.events.triggerEvent(new UpdateProgressEvent(repoId));
         } catch (NoSuchPageException pageException) {
@@ -205,28 +212,79 @@ public class GitHubRepo implements Repo {
             } catch (IOException e) {
                 HTLog.error(logger, e);
             }
+        } catch (IOException e) {
+            HTLog.error(logger, e);
         }
         return elements;
     }
 
+    private void logProgress(String repoId, int loadedPages, int lastPage) {
+        float progress = (float) loadedPages / (float) lastPage;
+        UI.events.triggerEvent(new UpdateProgressEvent(repoId, progress));
+        logger.info(HTLog.format(repoId, "Loaded %d of %d pages of issues (%.0f%% done)",
+            loadedPages, lastPage, progress * 100));
+    }
+
     @Override
-    public List<TurboIssueEvent> getEvents(String repoId, int issueId) {
-        try {
-            return issueService.getIssueEvents(RepositoryId.createFromId(repoId), issueId)
-                .getTurboIssueEvents();
-        } catch (IOException e) {
-            HTLog.error(logger, e);
-            return new ArrayList<>();
+    public ImmutablePair<List<TurboIssueEvent>, String> getUpdatedEvents(String repoId, int issueId,
+                                                                         String eTag) throws IOException {
+        GitHubEventsResponse response = issueService.getIssueEvents(RepositoryId.createFromId(repoId), issueId,
+            Optional.ofNullable(eTag).map(UpdateService::toIfNoneMatch));
+        if (response.getResponse().getBody() == null) {
+            return new ImmutablePair<>(new ArrayList<>(), eTag);
         }
+        return new ImmutablePair<>(response.getTurboIssueEvents(),
+            UpdateService.getETag(response.getResponse()).orElse(null));
     }
 
     @Override
-    public List<Comment> getComments(String repoId, int issueId) {
+    public ImmutablePair<List<Comment>, String> getUpdatedComments(String repoId, int issueId,
+                                                                   String eTag) throws IOException {
+        PagedRequest<Comment> request = issueService.createCommentsRequest(RepositoryId.createFromId(repoId),
+            issueId);
+        GitHubResponse firstPage = client.getIfNoneMatch(request,
+            Optional.ofNullable(eTag).map(UpdateService::toIfNoneMatch)).getRight();
+        if (firstPage.getBody() == null) {
+            return new ImmutablePair<>(new ArrayList<>(), eTag);
+        }
+
+        List<Comment> comments = new ArrayList<>(PageFetcher.getItems(firstPage));
+        int lastPage = PageFetcher.getLastPage(firstPage);
+        if (lastPage > 1) {
+            List<Integer> remainingPages = IntStream.rangeClosed(2, lastPage).boxed()
+                .collect(Collectors.toList());
+            PageFetcher.getPages(client, request, remainingPages).values()
+                .forEach(response -> comments.addAll(PageFetcher.getItems(response)));
+        }
+
+        // Only the first page is revalidated, so comments that fill it are given no ETag:
+        // a comment added to a later page would not change the first.
+        if (comments.size() >= request.getPageSize()) {
+            return new ImmutablePair<>(comments, null);
+        }
+        return new ImmutablePair<>(comments, UpdateService.getETag(firstPage).orElse(null));
+    }
+
+    @Override
+    public ImmutableTriple<List<Event>, String, Integer> getRepoEvents(String repoId, String eTag)
+            throws IOException {
+        PagedRequest<Event> request = eventService.createRepoEventsRequest(RepositoryId.createFromId(repoId));
+        GitHubResponse response = client.getIfNoneMatch(request,
+            Optional.ofNullable(eTag).map(UpdateService::toIfNoneMatch)).getRight();
+        int pollInterval = getPollInterval(response);
+        if (response.getBody() == null) {
+            return new ImmutableTriple<>(new ArrayList<>(), eTag, pollInterval);
+        }
+        return new ImmutableTriple<>(new ArrayList<>(PageFetcher.<Event>getItems(response)),
+            UpdateService.getETag(response).orElse(null), pollInterval);
+    }
+
+    private static int getPollInterval(GitHubResponse response) {
+        String interval = response.getHeader(EventServiceExtended.HEADER_POLL_INTERVAL);
         try {
-            return issueService.getComments(RepositoryId.createFromId(repoId), issueId);
-        } catch (IOException e) {
-            HTLog.error(logger, e);
-            return new ArrayList<>();
+            return interval == null ? DEFAULT_POLL_INTERVAL : Integer.parseInt(interval.trim());
+        } catch (NumberFormatException e) {
+            return DEFAULT_POLL_INTERVAL;
         }
     }
 
@@ -264,5 +322,9 @@ public class GitHubRepo implements Repo {
     public ImmutablePair<Integer, Long> getRateLimitResetTime() throws IOException {
         return client.getRateLimitResetTime();
     }
-}
 
+    @Override
+    public int getRemainingRequests() {
+        return client.getRemainingRequests();
+    }
+}
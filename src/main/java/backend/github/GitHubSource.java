@@ -1,6 +1,7 @@
 package backend.github;
 
 import backend.IssueMetadata;
+import backend.MetadataCache;
 import backend.UserCredentials;
 import backend.interfaces.Repo;
 import backend.interfaces.RepoSource;
@@ -10,15 +11,30 @@ import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.logging.log4j.Logger;
 import util.HTLog;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 public class GitHubSource extends RepoSource {
 
     private static final Logger logger = HTLog.get(GitHubSource.class);
 
     private final Repo gitHub = new GitHubRepo();
+    private final MetadataCache metadataCache = new MetadataCache();
+
+    private final boolean updateFromEventsFeed;
+    private final Map<String, EventFeed> eventFeeds = new ConcurrentHashMap<>();
+
+    /**
+     * @param updateFromEventsFeed whether models are updated from the events feed of their repository,
+     *                             as in UpdateFromEventsTask, rather than as in UpdateModelTask
+     */
+    public GitHubSource(boolean updateFromEventsFeed) {
+        this.updateFromEventsFeed = updateFromEventsFeed;
+    }
 
     @Override
     public String getName() {
@@ -46,12 +62,24 @@ public class GitHubSource extends RepoSource {
 
     @Override
     public CompletableFuture<Model> updateModel(Model model) {
+        if (updateFromEventsFeed) {
+            return addTask(new UpdateFromEventsTask(this, gitHub, model, eventFeeds)).response;
+        }
         return addTask(new UpdateModelTask(this, gitHub, model)).response;
     }
 
     @Override
-    public CompletableFuture<Map<Integer, IssueMetadata>> downloadMetadata(String repoId, List<Integer> issues) {
-        return addTask(new DownloadMetadataTask(this, gitHub, repoId, issues)).response;
+    public CompletableFuture<Map<Integer, IssueMetadata>> downloadMetadata(String repoId,
+                                                                           Map<Integer, LocalDateTime> issues,
+                                                                           int maxConnections,
+                                                                           Consumer<Map<Integer, IssueMetadata>> onChunk) {
+        return addTask(new DownloadMetadataTask(this, gitHub, repoId, issues, metadataCache,
+            maxConnections, onChunk)).response;
+    }
+
+    @Override
+    public boolean removeMetadata(String repoId) {
+        return metadataCache.remove(repoId);
     }
 
     @Override
@@ -69,4 +97,9 @@ public class GitHubSource extends RepoSource {
         return addTask(new CheckRateLimitTask(this, gitHub)).response;
     }
 
+    @Override
+    public int getRemainingRequests() {
+        return gitHub.getRemainingRequests();
+    }
+
 }
@@ -21,6 +21,11 @@ public class ReplaceIssueLabelsTask extends GitHubRepoTask<List<String>> {
         this.labels = labels;
     }
 
+    @Override
+    public Priority getPriority() {
+        return Priority.USER_ACTION;
+    }
+
     @Override
     public void run() {
         try {
@@ -12,6 +12,11 @@ public class RepoValidityTask extends GitHubRepoTask<Boolean> {
         this.repoId = repoId;
     }
 
+    @Override
+    public Priority getPriority() {
+        return Priority.USER_ACTION;
+    }
+
     @Override
     public void run() {
         response.complete(repo.isRepositoryValid(repoId));
@@ -0,0 +1,272 @@
+package backend.github;
+
+import backend.UpdateSignature;
+import backend.interfaces.Repo;
+import backend.interfaces.TaskRunner;
+import backend.resource.Model;
+import backend.resource.TurboIssue;
+import backend.resource.TurboLabel;
+import backend.resource.TurboMilestone;
+import backend.resource.TurboUser;
+import github.EventServiceExtended;
+import org.apache.commons.lang3.tuple.ImmutableTriple;
+import org.apache.logging.log4j.Logger;
+import org.eclipse.egit.github.core.Issue;
+import org.eclipse.egit.github.core.event.Event;
+import org.eclipse.egit.github.core.event.EventPayload;
+import org.eclipse.egit.github.core.event.IssueCommentPayload;
+import org.eclipse.egit.github.core.event.IssuesPayload;
+import util.HTLog;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Updates a model from the events feed of its repository, instead of polling its issues, labels,
+ * milestones and collaborators separately as UpdateModelTask does. While nothing happens in the
+ * repository, an update is a single conditional request answered with 304 Not Modified, and the
+ * feed is not polled at all for as long as GitHub asks in its X-Poll-Interval header.
+ *
+ * New events are applied to the model:
+ * - issue and issue comment events carry the issue they happened to, which replaces the one in the model
+ * - pull request events do not, so the issues are updated as in UpdateIssuesTask
+ * - member events update the collaborators
+ * - labels and milestones are not in the feed, so they are updated when an issue refers to ones
+ *   that the model does not have
+ *
+ * The model is updated in full with UpdateModelTask when the feed cannot be relied on: the first
+ * time the repository is updated, when more events happened between polls than the feed holds, and
+ * every FULL_UPDATE_INTERVAL, so that changes to labels and milestones alone are picked up too.
+ */
+public class UpdateFromEventsTask extends GitHubRepoTask<Model> {
+
+    private static final Logger logger = HTLog.get(UpdateFromEventsTask.class);
+
+    public static final long FULL_UPDATE_INTERVAL = TimeUnit.MINUTES.toMillis(15);
+
+    private final Model model;
+    private final Map<String, EventFeed> feeds;
+
+    /**
+     * @param feeds what is known of the feed of each repository, updated by the task
+     */
+    public UpdateFromEventsTask(TaskRunner taskRunner, Repo repo, Model model, Map<String, EventFeed> feeds) {
+        super(taskRunner, repo);
+        this.model = model;
+        this.feeds = feeds;
+    }
+
+    @Override
+    public Optional<String> getUpdatedRepoId() {
+        return Optional.of(model.getRepoId());
+    }
+
+    @Override
+    public void run() {
+        String repoId = model.getRepoId();
+        EventFeed feed = feeds.get(repoId);
+        long now = System.currentTimeMillis();
+
+        try {
+            if (feed == null) {
+                response.complete(updateFully(now));
+                return;
+            }
+            if (now < feed.nextPollTime) {
+                logger.info(HTLog.format(repoId, "Not polling events again for %d s",
+                    TimeUnit.MILLISECONDS.toSeconds(feed.nextPollTime - now)));
+                response.complete(model);
+                return;
+            }
+            if (now - feed.lastFullUpdateTime >= FULL_UPDATE_INTERVAL) {
+                response.complete(updateFully(now));
+                return;
+            }
+
+            ImmutableTriple<List<Event>, String, Integer> polled = repo.getRepoEvents(repoId, feed.eTag);
+            long nextPollTime = now + TimeUnit.SECONDS.toMillis(polled.right);
+            if (polled.left.isEmpty()) {
+                logger.info(HTLog.format(repoId, "No new events"));
+                feeds.put(repoId, new EventFeed(polled.middle, feed.lastEventId, nextPollTime,
+                    feed.lastFullUpdateTime));
+                response.complete(model);
+                return;
+            }
+
+            Optional<List<Event>> newEvents = getEventsSince(polled.left, feed.lastEventId);
+            if (!newEvents.isPresent()) {
+                logger.info(HTLog.format(repoId, "Events may have been missed, updating in full"));
+                response.complete(updateFully(now));
+                return;
+            }
+
+            Model result = applyEvents(newEvents.get());
+            feeds.put(repoId, new EventFeed(polled.middle, polled.left.get(0).getId(), nextPollTime,
+                feed.lastFullUpdateTime));
+            logger.info(HTLog.format(repoId, "Applied %d event(s), updated model with %s",
+                newEvents.get().size(), result.summarise()));
+            response.complete(result);
+        } catch (IOException | InterruptedException | ExecutionException e) {
+            HTLog.error(logger, e);
+            response.complete(model);
+        }
+    }
+
+    /**
+     * Updates the model with UpdateModelTask. The feed is polled first, so that events that
+     * happen during the update are applied the next time rather than missed.
+     */
+    private Model updateFully(long now) throws IOException, InterruptedException, ExecutionException {
+        ImmutableTriple<List<Event>, String, Integer> polled = repo.getRepoEvents(model.getRepoId(), null);
+
+        UpdateModelTask updateTask = new UpdateModelTask(taskRunner, repo, model);
+        updateTask.run();
+        if (!updateTask.response.isDone() || updateTask.response.isCompletedExceptionally()) {
+            // The failure was logged by the task; the feed is only relied on after a full update
+            return model;
+        }
+        Model updated = updateTask.response.get();
+
+        String lastEventId = polled.left.isEmpty() ? null : polled.left.get(0).getId();
+        feeds.put(model.getRepoId(), new EventFeed(polled.middle, lastEventId,
+            now + TimeUnit.SECONDS.toMillis(polled.right), now));
+        return updated;
+    }
+
+    /**
+     * Returns the events newer than the given one, oldest first, or empty if some of them may not
+     * be in the feed any more.
+     */
+    private static Optional<List<Event>> getEventsSince(List<Event> events, String lastEventId) {
+        List<Event> newEvents = new ArrayList<>();
+        for (Event event : events) {
+            if (event.getId() != null && event.getId().equals(lastEventId)) {
+                Collections.reverse(newEvents);
+                return Optional.of(newEvents);
+            }
+            newEvents.add(event);
+        }
+        // The last event applied is not in the feed: either it was empty, in which case all of these
+        // are new unless there are too many to fit, or more events happened than the feed holds.
+        boolean feedWasEmpty = lastEventId == null;
+        if (feedWasEmpty && events.size() < EventServiceExtended.MAX_EVENTS_PAGE_SIZE) {
+            Collections.reverse(newEvents);
+            return Optional.of(newEvents);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Applies events, oldest first, to the model.
+     */
+    private Model applyEvents(List<Event> events) throws InterruptedException, ExecutionException {
+        String repoId = model.getRepoId();
+
+        // The newest state of each issue that the events carry
+        Map<Integer, TurboIssue> changedIssues = new LinkedHashMap<>();
+        boolean issuesMissed = false;
+        boolean collaboratorsChanged = false;
+
+        for (Event event : events) {
+            String type = event.getType();
+            if (Event.TYPE_ISSUES.equals(type) || Event.TYPE_ISSUE_COMMENT.equals(type)) {
+                Issue issue = getIssue(event.getPayload());
+                if (issue == null) {
+                    issuesMissed = true;
+                } else {
+                    changedIssues.put(issue.getNumber(), new TurboIssue(repoId, issue));
+                }
+            } else if (Event.TYPE_PULL_REQUEST.equals(type) || Event.TYPE_PULL_REQUEST_REVIEW_COMMENT.equals(type)) {
+                issuesMissed = true;
+            } else if (Event.TYPE_MEMBER.equals(type)) {
+                collaboratorsChanged = true;
+            }
+        }
+
+        UpdateSignature signature = model.getUpdateSignature();
+        String issuesETag = signature.issuesETag;
+        Date lastCheckTime = signature.lastCheckTime;
+        List<TurboIssue> issues;
+        if (issuesMissed) {
+            UpdateIssuesTask issuesTask = new UpdateIssuesTask(taskRunner, repo, model);
+            issuesTask.run();
+            Result<TurboIssue> issuesResult = issuesTask.response.get();
+            issues = issuesResult.items;
+            issuesETag = issuesResult.eTag;
+            lastCheckTime = issuesResult.lastCheckTime;
+        } else if (changedIssues.isEmpty()) {
+            issues = model.getIssues();
+        } else {
+            issues = TurboIssue.reconcile(repoId, model.getIssues(), new ArrayList<>(changedIssues.values()));
+        }
+
+        String labelsETag = signature.labelsETag;
+        List<TurboLabel> labels = model.getLabels();
+        if (refersToUnknownLabels(changedIssues.values())) {
+            UpdateLabelsTask labelsTask = new UpdateLabelsTask(taskRunner, repo, model);
+            labelsTask.run();
+            labels = labelsTask.response.get().items;
+            labelsETag = labelsTask.response.get().eTag;
+        }
+
+        String milestonesETag = signature.milestonesETag;
+        List<TurboMilestone> milestones = model.getMilestones();
+        if (refersToUnknownMilestones(changedIssues.values())) {
+            UpdateMilestonesTask milestonesTask = new UpdateMilestonesTask(taskRunner, repo, model);
+            milestonesTask.run();
+            milestones = milestonesTask.response.get().items;
+            milestonesETag = milestonesTask.response.get().eTag;
+        }
+
+        String collaboratorsETag = signature.collaboratorsETag;
+        List<TurboUser> users = model.getUsers();
+        if (collaboratorsChanged) {
+            UpdateUsersTask usersTask = new UpdateUsersTask(taskRunner, repo, model);
+            usersTask.run();
+            users = usersTask.response.get().items;
+            collaboratorsETag = usersTask.response.get().eTag;
+        }
+
+        return new Model(repoId, issues, labels, milestones, users,
+            new UpdateSignature(issuesETag, labelsETag, milestonesETag, collaboratorsETag, lastCheckTime));
+    }
+
+    private static Issue getIssue(EventPayload payload) {
+        if (payload instanceof IssuesPayload) {
+            return ((IssuesPayload) payload).getIssue();
+        }
+        if (payload instanceof IssueCommentPayload) {
+            return ((IssueCommentPayload) payload).getIssue();
+        }
+        return null;
+    }
+
+    private boolean refersToUnknownLabels(Iterable<TurboIssue> issues) {
+        for (TurboIssue issue : issues) {
+            for (String label : issue.getLabels()) {
+                if (!model.getLabelByActualName(label).isPresent()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean refersToUnknownMilestones(Iterable<TurboIssue> issues) {
+        for (TurboIssue issue : issues) {
+            if (issue.getMilestone().isPresent()
+                && !model.getMilestoneById(issue.getMilestone().get()).isPresent()) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -2,11 +2,13 @@ package backend.github;
 
 import backend.UpdateSignature;
 import backend.interfaces.Repo;
+import backend.interfaces.RepoTask;
 import backend.interfaces.TaskRunner;
 import backend.resource.*;
 import org.apache.logging.log4j.Logger;
 import util.HTLog;
 
+import java.util.Optional;
 import java.util.concurrent.ExecutionException;
 
 public class UpdateModelTask extends GitHubRepoTask<Model> {
@@ -20,6 +22,11 @@ public class UpdateModelTask extends GitHubRepoTask<Model> {
         this.model = model;
     }
 
+    @Override
+    public Optional<String> getUpdatedRepoId() {
+        return Optional.of(model.getRepoId());
+    }
+
     @Override
     public void run() {
         UpdateIssuesTask issuesTask = new UpdateIssuesTask(taskRunner, repo, model);
@@ -27,10 +34,10 @@ public class UpdateModelTask extends GitHubRepoTask<Model> {
         UpdateMilestonesTask milestonesTask = new UpdateMilestonesTask(taskRunner, repo, model);
         UpdateUsersTask usersTask = new UpdateUsersTask(taskRunner, repo, model);
 
-        taskRunner.execute(issuesTask);
-        taskRunner.execute(labelsTask);
-        taskRunner.execute(milestonesTask);
-        taskRunner.execute(usersTask);
+        execute(issuesTask);
+        execute(labelsTask);
+        execute(milestonesTask);
+        execute(usersTask);
 
         try {
             GitHubRepoTask.Result<TurboIssue> issuesResult = issuesTask.response.get();
@@ -49,6 +56,21 @@ public class UpdateModelTask extends GitHubRepoTask<Model> {
             response.complete(result);
         } catch (InterruptedException | ExecutionException e) {
             HTLog.error(logger, e);
+            response.completeExceptionally(e);
         }
     }
+
+    /**
+     * Runs a part of the update, failing its response if it throws, so that the update fails
+     * rather than waits for it forever.
+     */
+    private void execute(RepoTask<?> task) {
+        taskRunner.execute(() -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                task.response.completeExceptionally(e);
+            }
+        });
+    }
 }
@@ -0,0 +1,46 @@
+package backend.interfaces;
+
+import backend.resource.serialization.SerializableChanges;
+import backend.resource.serialization.SerializableModel;
+import org.apache.logging.log4j.Logger;
+import util.HTLog;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Appends changes to the journal of a repository, then compacts the journal if it has
+ * grown too large. The response is completed before compaction starts, so that callers
+ * do not wait for it.
+ */
+class JournalTask extends StoreTask {
+
+    private static final Logger logger = HTLog.get(JournalTask.class);
+
+    private final RepoStore store;
+    private final SerializableChanges changes;
+    private final Supplier<SerializableModel> snapshot;
+    private final CompletableFuture<Boolean> response;
+
+    JournalTask(RepoStore store, String repoId, SerializableChanges changes,
+                Supplier<SerializableModel> snapshot, CompletableFuture<Boolean> response) {
+        super(repoId);
+        this.store = store;
+        this.changes = changes;
+        this.snapshot = snapshot;
+        this.response = response;
+    }
+
+    @Override
+    public void run() {
+        boolean corrupted = StoreJournal.append(repoId, changes);
+        logger.info(HTLog.format(repoId, "Changes appended to journal"));
+        response.complete(corrupted);
+
+        if (!corrupted && StoreJournal.size(repoId) > StoreJournal.COMPACTION_THRESHOLD) {
+            // Writing the repository in full also deletes the journal
+            logger.info(HTLog.format(repoId, "Compacting journal"));
+            store.writeSnapshot(repoId, snapshot.get());
+        }
+    }
+}
@@ -10,6 +10,7 @@ import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.ImmutableTriple;
 import org.eclipse.egit.github.core.Comment;
 import org.eclipse.egit.github.core.Label;
+import org.eclipse.egit.github.core.event.Event;
 
 import java.io.IOException;
 import java.util.Date;
@@ -31,11 +32,22 @@ public interface Repo {
     ImmutablePair<List<TurboMilestone>, String> getUpdatedMilestones(String repoId, String eTag);
     ImmutablePair<List<TurboUser>, String> getUpdatedCollaborators(String repoId, String eTag);
 
-    List<TurboIssueEvent> getEvents(String repoId, int issueId);
-    List<Comment> getComments(String repoId, int issueId);
+    // Return no items and the given ETag if the events or comments have not changed since they
+    // had it. The ETag may be null, both when given and when returned.
+    ImmutablePair<List<TurboIssueEvent>, String> getUpdatedEvents(String repoId, int issueId, String eTag)
+        throws IOException;
+    ImmutablePair<List<Comment>, String> getUpdatedComments(String repoId, int issueId, String eTag)
+        throws IOException;
+
+    // Returns the latest events of the repository, newest first, with the ETag of the feed and the number
+    // of seconds to wait before polling it again. No events and the given ETag if the feed has not changed.
+    ImmutableTriple<List<Event>, String, Integer> getRepoEvents(String repoId, String eTag) throws IOException;
 
     boolean isRepositoryValid(String repoId);
     List<Label> setLabels(String repoId, int issueId, List<String> labels) throws IOException;
     ImmutablePair<Integer, Long> getRateLimitResetTime() throws IOException;
 
+    // The number of requests left as of the last response, or -1 if not known. Makes no request.
+    int getRemainingRequests();
+
 }
@@ -1,27 +1,39 @@
 package backend.interfaces;
 
 import backend.IssueMetadata;
+import backend.RepoTaskScheduler;
 import backend.UserCredentials;
 import backend.resource.Model;
 import backend.resource.TurboIssue;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 
 public abstract class RepoSource implements TaskRunner {
 
     private final ExecutorService pool = Executors.newCachedThreadPool();
+    private final RepoTaskScheduler scheduler =
+        new RepoTaskScheduler(pool, this::getRemainingRequests, this::getRateLimitResetTime);
 
+    /**
+     * Runs a task as soon as the rate limit allows for its priority.
+     */
     @Override
     public <R> RepoTask<R> addTask(RepoTask<R> task) {
-        execute(task);
+        scheduler.schedule(task);
         return task;
     }
 
+    /**
+     * Runs at once, regardless of the rate limit. Used for parts of tasks already started,
+     * which must not be held back while the task waits for them.
+     */
     @Override
     public void execute(Runnable r) {
         pool.execute(r);
@@ -35,8 +47,19 @@ public abstract class RepoSource implements TaskRunner {
 
     public abstract CompletableFuture<Model> updateModel(Model model);
 
+    /**
+     * @param issues the ids of the issues for which to get metadata, with the times they were last updated at
+     * @param maxConnections the maximum number of requests made at once
+     * @param onChunk called with each chunk of metadata as it is downloaded
+     */
     public abstract CompletableFuture<Map<Integer, IssueMetadata>>
-        downloadMetadata(String repoId, List<Integer> issues);
+        downloadMetadata(String repoId, Map<Integer, LocalDateTime> issues, int maxConnections,
+                         Consumer<Map<Integer, IssueMetadata>> onChunk);
+
+    /**
+     * Drops the metadata of a repository that was kept between downloads. Returns true on failure.
+     */
+    public abstract boolean removeMetadata(String repoId);
 
     public abstract CompletableFuture<Boolean> isRepositoryValid(String repoId);
 
@@ -44,4 +67,9 @@ public abstract class RepoSource implements TaskRunner {
 
     public abstract CompletableFuture<ImmutablePair<Integer, Long>> getRateLimitResetTime();
 
+    /**
+     * @return the number of requests that remain as of the last one made, or -1 if none was made yet
+     */
+    public abstract int getRemainingRequests();
+
 }
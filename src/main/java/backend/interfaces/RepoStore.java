@@ -1,50 +1,297 @@
 package backend.interfaces;
 
 import backend.resource.Model;
+import backend.resource.serialization.SerializableChanges;
 import backend.resource.serialization.SerializableModel;
+import org.apache.logging.log4j.Logger;
+import util.HTLog;
+import util.IOUtilities;
+import util.KeyedExecutor;
 import util.Utility;
+import util.exceptions.ChecksumMismatchException;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.zip.Deflater;
+
+import static com.google.common.io.Files.getFileExtension;
 
 public abstract class RepoStore {
 
+    private static final Logger logger = HTLog.get(RepoStore.class);
+
     protected static String directory = "store";
     public static final String TEST_DIRECTORY = "store/test";
-    private final ExecutorService pool = Executors.newSingleThreadExecutor();
+    public static final String JSON_EXTENSION = "json";
+    // JSON files keep their checksum in a file of the same name with this extension appended
+    public static final String CHECKSUM_EXTENSION = "crc";
+    public static final int NO_COMPRESSION = 0;
+
+    // NO_COMPRESSION, or a GZIP compression level from 1 (fastest) to 9 (smallest), for the files
+    // this store writes. Compressed files are detected when read, so this does not affect existing files.
+    private final int compressionLevel;
+
+    // Disk-bound tasks gain little from more threads than this
+    private static final int MAX_CONCURRENT_TASKS = Math.min(4, Runtime.getRuntime().availableProcessors());
+
+    // Tasks for the same repository run in order, and those for different repositories in parallel
+    private final KeyedExecutor pool = new KeyedExecutor(MAX_CONCURRENT_TASKS);
+
+    // For each repository, the save that is last in its queue and has not started yet. Guarded by itself.
+    private final Map<String, SaveTask> pendingSaves = new HashMap<>();
+
+    protected RepoStore() {
+        this(NO_COMPRESSION);
+    }
+
+    /**
+     * @param compressionLevel NO_COMPRESSION, or a GZIP compression level from 1 to 9
+     */
+    protected RepoStore(int compressionLevel) {
+        this.compressionLevel = validCompressionLevel(compressionLevel);
+    }
+
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
 
     public static String escapeRepoName(String repoName) {
-        return repoName.replace("/", "-") + ".json";
+        return escapeRepoName(repoName, JSON_EXTENSION);
     }
 
+    public static String escapeRepoName(String repoName, String extension) {
+        return repoName.replace("/", "-") + "." + extension;
+    }
+
+    /**
+     * Queues a task for its repository. A save that directly follows another save which has not
+     * started yet is merged into it, as the earlier one would be overwritten anyway. The merged
+     * save writes the newer model and completes the responses of both.
+     */
     protected void addTask(StoreTask task) {
-        pool.execute(task);
+        // Repository names are not case-sensitive, and neither are the store files on some platforms
+        String key = task.repoId.toLowerCase();
+        synchronized (pendingSaves) {
+            if (task instanceof SaveTask) {
+                SaveTask save = (SaveTask) task;
+                SaveTask pending = pendingSaves.get(key);
+                if (pending != null) {
+                    pending.supersedeWith(save);
+                    logger.info(HTLog.format(task.repoId, "Merged with pending save"));
+                    return;
+                }
+                pendingSaves.put(key, save);
+                pool.execute(key, () -> {
+                    synchronized (pendingSaves) {
+                        pendingSaves.remove(key, save);
+                    }
+                    save.run();
+                });
+                return;
+            }
+            // Tasks must run in order, so no later save may be merged into one before this task
+            pendingSaves.remove(key);
+            pool.execute(key, task);
+        }
     }
 
     public abstract CompletableFuture<Model> loadRepository(String repoId);
     public abstract CompletableFuture<Boolean> saveRepository(String repoId, SerializableModel model);
+    public abstract CompletableFuture<Boolean> removeStoredRepo(String repoId);
+
+    /**
+     * Writes the repository in full in the current thread, then deletes its journal.
+     * Returns true on failure.
+     */
+    protected abstract boolean writeSnapshot(String repoId, SerializableModel model);
+
+    /**
+     * Records changes to a stored repository in its journal, instead of writing it in full.
+     * Loading the repository replays the journal on top of the last full write.
+     * @param snapshot the repository with the changes applied, written in full when the
+     *                 journal grows too large
+     * @return a future that completes with true on failure, like saveRepository
+     */
+    public CompletableFuture<Boolean> saveChanges(String repoId, SerializableChanges changes,
+                                                  Supplier<SerializableModel> snapshot) {
+        CompletableFuture<Boolean> response = new CompletableFuture<>();
+        addTask(new JournalTask(this, repoId, changes, snapshot, response));
+        return response;
+    }
+
+    /**
+     * Lists the ids of all repositories that can be loaded from the store.
+     */
+    public abstract List<String> getStoredRepos();
 
     private static Optional<String> getRepoPath(String repoId) {
+        return getRepoPath(repoId, JSON_EXTENSION);
+    }
+
+    public static Optional<String> getRepoPath(String repoId, String extension) {
         if (ensureDirectoryExists()) {
-            String newRepoName = RepoStore.escapeRepoName(repoId);
+            String newRepoName = RepoStore.escapeRepoName(repoId, extension);
             return Optional.of(new File(RepoStore.directory, newRepoName).getAbsolutePath());
         }
         return Optional.empty();
     }
 
-    public static boolean write(String repoId, String output, int issueCount) {
-        return Utility.writeFile(getRepoPath(repoId).orElse(""), output, issueCount);
+    /**
+     * Lists the files in the store directory with the given extension.
+     */
+    protected static List<Path> getStoredFiles(String extension) {
+        ensureDirectoryExists();
+        try {
+            return Files.walk(Paths.get(RepoStore.directory), 1)
+                    .filter(Files::isRegularFile)
+                    .filter(p -> getFileExtension(String.valueOf(p.getFileName())).equalsIgnoreCase(extension))
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            logger.error("Unable to open stored repository directory. ");
+            return new ArrayList<>();
+        }
+    }
+
+    public static boolean write(String repoId, String output) {
+        return Utility.writeFile(getRepoPath(repoId).orElse(""), output);
+    }
+
+    /**
+     * Streams the data of a repository into the store. Returns true on failure.
+     * @param compressionLevel NO_COMPRESSION, or a GZIP compression level from 1 to 9
+     */
+    public static boolean write(String repoId, IOUtilities.StreamWriter writer, int compressionLevel) {
+        Optional<String> path = getRepoPath(repoId);
+        if (!path.isPresent()) {
+            return true;
+        }
+        try {
+            writeJsonFile(Paths.get(path.get()), writer, compressionLevel);
+            return false;
+        } catch (IOException e) {
+            HTLog.error(logger, e);
+            return true;
+        }
     }
 
     public static Optional<String> read(String repoId) {
         return Utility.readFile(getRepoPath(repoId).orElse(""));
     }
 
+    /**
+     * Streams the stored data of a repository into the given reader.
+     * Returns empty if the repository could not be read from the store.
+     */
+    public static <T> Optional<T> read(String repoId, IOUtilities.StreamReader<T> reader) {
+        return readFile(getRepoPath(repoId).orElse(""), reader);
+    }
+
+    /**
+     * Streams data into a binary store file, compressed at the given level, and preceded by a
+     * checksum of it so that corruption can be told apart when the file is read.
+     * @param compressionLevel NO_COMPRESSION, or a GZIP compression level from 1 to 9
+     */
+    public static void writeFile(Path path, IOUtilities.StreamWriter writer, int compressionLevel)
+            throws IOException {
+        IOUtilities.writeAtomicallyWithChecksum(path, compressing(writer, validCompressionLevel(compressionLevel)));
+    }
+
+    /**
+     * Like writeFile, but keeps the checksum in a separate file, so that an uncompressed
+     * JSON store file remains a valid JSON document.
+     */
+    public static void writeJsonFile(Path path, IOUtilities.StreamWriter writer, int compressionLevel)
+            throws IOException {
+        IOUtilities.writeAtomicallyWithChecksumFile(path, getChecksumPath(path),
+            compressing(writer, validCompressionLevel(compressionLevel)));
+    }
+
+    private static Path getChecksumPath(Path path) {
+        return path.resolveSibling(path.getFileName() + "." + CHECKSUM_EXTENSION);
+    }
+
+    /**
+     * Deletes a store file along with its checksum file, if any. Returns true on failure.
+     */
+    public static boolean deleteFile(String path) {
+        boolean fileError = Utility.deleteFile(path);
+        return !path.isEmpty() && deleteChecksumFile(path) || fileError;
+    }
+
+    /**
+     * Streams a store file into the given reader, verifying it against its checksum.
+     * A file that does not match is reported and moved aside, so that it can be downloaded again.
+     * Returns empty if the file could not be read or is corrupted.
+     */
+    public static <T> Optional<T> readFile(String path, IOUtilities.StreamReader<T> reader) {
+        try {
+            return Optional.ofNullable(IOUtilities.readStreaming(Paths.get(path),
+                IOUtilities.verifyingChecksum(getChecksumPath(Paths.get(path)), decompressing(reader))));
+        } catch (ChecksumMismatchException e) {
+            HTLog.error(logger, e);
+            Utility.reportCorruptedFile(path);
+            deleteChecksumFile(path);
+        } catch (IOException e) {
+            HTLog.error(logger, e);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Streams the start of a store file into the given reader, without verifying the whole file.
+     */
+    public static <T> Optional<T> readFileHeader(String path, IOUtilities.StreamReader<T> reader) {
+        return Utility.readFile(path, IOUtilities.skippingChecksum(decompressing(reader)));
+    }
+
+    /**
+     * Compresses what the writer produces, unless the level is NO_COMPRESSION.
+     */
+    private static IOUtilities.StreamWriter compressing(IOUtilities.StreamWriter writer, int level) {
+        return level == NO_COMPRESSION ? writer : IOUtilities.gzipping(writer, level);
+    }
+
+    /**
+     * Decompresses what the reader consumes, if it was stored compressed.
+     */
+    private static <T> IOUtilities.StreamReader<T> decompressing(IOUtilities.StreamReader<T> reader) {
+        return IOUtilities.gunzippingIfCompressed(reader);
+    }
+
+    private static int validCompressionLevel(int level) {
+        if (level < NO_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+            logger.warn("Invalid store compression level " + level + ", not compressing");
+            return NO_COMPRESSION;
+        }
+        return level;
+    }
+
+    /**
+     * Returns true on failure.
+     */
+    private static boolean deleteChecksumFile(String path) {
+        try {
+            Files.deleteIfExists(getChecksumPath(Paths.get(path)));
+            return false;
+        } catch (IOException e) {
+            HTLog.error(logger, e);
+            return true;
+        }
+    }
+
     public static boolean delete(String repoId) {
-        return Utility.deleteFile(getRepoPath(repoId).orElse(""));
+        return deleteFile(getRepoPath(repoId).orElse(""));
     }
 
     /**
@@ -1,8 +1,19 @@
 package backend.interfaces;
 
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 
 public abstract class RepoTask<R> implements Runnable {
+
+    /**
+     * How urgent a task is, most urgent first. Less urgent tasks are held back as the rate limit runs out.
+     */
+    public enum Priority {
+        USER_ACTION, // the user is waiting for it, such as changing the labels of an issue
+        VISIBLE,     // gets data that is about to be shown, such as the metadata of issues in panels
+        BACKGROUND   // keeps data up to date, such as refreshing repositories
+    }
+
     public final Repo repo;
     public final CompletableFuture<R> response;
     public final TaskRunner taskRunner;
@@ -13,5 +24,17 @@ public abstract class RepoTask<R> implements Runnable {
         response = new CompletableFuture<>();
     }
 
+    public Priority getPriority() {
+        return Priority.BACKGROUND;
+    }
+
+    /**
+     * Returns the repository that this task brings up to date, if that is all it does. At most one
+     * such task per repository is waiting or running at a time; later ones share its result.
+     */
+    public Optional<String> getUpdatedRepoId() {
+        return Optional.empty();
+    }
+
     public abstract void run();
 }
@@ -0,0 +1,41 @@
+package backend.interfaces;
+
+import backend.resource.serialization.SerializableModel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Writes a repository in full. A save that has not started yet may be superseded by a newer
+ * one for the same repository (see RepoStore.addTask), in which case it writes the newer model
+ * and completes the responses of both.
+ */
+public abstract class SaveTask extends StoreTask {
+
+    // Only changed by RepoStore before the task starts
+    private SerializableModel toSave;
+    private final List<CompletableFuture<Boolean>> responses = new ArrayList<>();
+
+    protected SaveTask(String repoId, SerializableModel toSave, CompletableFuture<Boolean> response) {
+        super(repoId);
+        this.toSave = toSave;
+        this.responses.add(response);
+    }
+
+    /**
+     * Writes the model. Returns true on failure.
+     */
+    protected abstract boolean save(String repoId, SerializableModel model);
+
+    void supersedeWith(SaveTask newer) {
+        toSave = newer.toSave;
+        responses.addAll(newer.responses);
+    }
+
+    @Override
+    public void run() {
+        boolean corrupted = save(repoId, toSave);
+        responses.forEach(response -> response.complete(corrupted));
+    }
+}
@@ -0,0 +1,143 @@
+package backend.interfaces;
+
+import backend.resource.Model;
+import backend.resource.serialization.SerializableChanges;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import org.apache.logging.log4j.Logger;
+import util.HTLog;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+
+/**
+ * An append-only record of the changes made to a stored repository since it was last
+ * written in full. Each line of the journal is a SerializableChanges in JSON.
+ *
+ * A line that cannot be parsed is the result of an append that was cut short, which can
+ * only happen if the program died halfway through. It is skipped: the entries before it
+ * carry the update signature from which the next update will start.
+ */
+public final class StoreJournal {
+
+    private static final Logger logger = HTLog.get(StoreJournal.class);
+
+    public static final String EXTENSION = "journal";
+
+    // Beyond this size, the journal is merged into a full write of the repository
+    public static final long COMPACTION_THRESHOLD = 512 * 1024;
+
+    private static final byte NEWLINE = '\n';
+
+    private StoreJournal() {
+    }
+
+    /**
+     * Appends the changes to the journal of the repository.
+     * @return true on failure
+     */
+    public static boolean append(String repoId, SerializableChanges changes) {
+        Optional<Path> path = getPath(repoId);
+        if (!path.isPresent()) {
+            return true;
+        }
+        byte[] entry = (new Gson().toJson(changes) + "\n").getBytes(StandardCharsets.UTF_8);
+        try (FileChannel channel = FileChannel.open(path.get(), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            channel.position(size);
+            if (size > 0 && !endsWithNewline(channel, size)) {
+                // Start after the remains of an append that was cut short
+                channel.write(ByteBuffer.wrap(new byte[]{NEWLINE}));
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(entry);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+            return false;
+        } catch (IOException e) {
+            HTLog.error(logger, e);
+            return true;
+        }
+    }
+
+    private static boolean endsWithNewline(FileChannel channel, long size) throws IOException {
+        ByteBuffer last = ByteBuffer.allocate(1);
+        channel.read(last, size - 1);
+        return last.get(0) == NEWLINE;
+    }
+
+    /**
+     * Returns a new Model with the changes in the journal of the repository applied
+     * to the given one, or the same Model if there is no journal.
+     * @throws IOException if the journal exists but could not be read
+     */
+    public static Model replay(Model model) throws IOException {
+        Optional<Path> path = getPath(model.getRepoId());
+        if (!path.isPresent() || !Files.exists(path.get())) {
+            return model;
+        }
+        Gson gson = new Gson();
+        int entries = 0;
+        try (BufferedReader reader = Files.newBufferedReader(path.get(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                try {
+                    model = gson.fromJson(line, SerializableChanges.class).applyTo(model);
+                    entries++;
+                } catch (JsonParseException | NullPointerException e) {
+                    logger.warn(HTLog.format(model.getRepoId(), "Skipping incomplete journal entry"));
+                }
+            }
+        }
+        logger.info(HTLog.format(model.getRepoId(), "Replayed " + entries + " journal entries"));
+        return model;
+    }
+
+    /**
+     * Returns the size of the journal of the repository in bytes, 0 if there is none.
+     */
+    public static long size(String repoId) {
+        try {
+            Optional<Path> path = getPath(repoId);
+            return path.isPresent() && Files.exists(path.get()) ? Files.size(path.get()) : 0;
+        } catch (IOException e) {
+            HTLog.error(logger, e);
+            return 0;
+        }
+    }
+
+    /**
+     * Deletes the journal of the repository if there is one. To be called once all the
+     * changes it records are in the stored repository.
+     * @return true on failure
+     */
+    public static boolean delete(String repoId) {
+        try {
+            Optional<Path> path = getPath(repoId);
+            if (path.isPresent()) {
+                Files.deleteIfExists(path.get());
+            }
+            return false;
+        } catch (IOException e) {
+            HTLog.error(logger, e);
+            return true;
+        }
+    }
+
+    private static Optional<Path> getPath(String repoId) {
+        return RepoStore.getRepoPath(repoId, EXTENSION).map(Paths::get);
+    }
+}
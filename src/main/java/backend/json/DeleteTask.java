@@ -1,6 +1,7 @@
 package backend.json;
 
 import backend.interfaces.RepoStore;
+import backend.interfaces.StoreJournal;
 import backend.interfaces.StoreTask;
 
 import java.io.IOException;
@@ -20,6 +21,7 @@ class DeleteTask extends StoreTask {
 
     @Override
     public void run() {
-        response.complete(RepoStore.delete(repoId));
+        boolean journalError = StoreJournal.delete(repoId);
+        response.complete(RepoStore.delete(repoId) || journalError);
     }
 }
@@ -0,0 +1,165 @@
+package backend.json;
+
+import backend.UpdateSignature;
+import backend.resource.Model;
+import backend.resource.TurboIssue;
+import backend.resource.TurboLabel;
+import backend.resource.TurboMilestone;
+import backend.resource.TurboUser;
+import backend.resource.serialization.SerializableIssue;
+import backend.resource.serialization.SerializableLabel;
+import backend.resource.serialization.SerializableMilestone;
+import backend.resource.serialization.SerializableUser;
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiFunction;
+
+/**
+ * Reads the JSON written by WriteTask incrementally, one resource at a time,
+ * instead of parsing the whole file into an intermediate SerializableModel.
+ *
+ * Relies on the repoId field being written before the resource lists, which
+ * Gson guarantees as it writes fields in declaration order.
+ */
+public final class JSONModelReader {
+
+    private static final String FIELD_REPO_ID = "repoId";
+    private static final String FIELD_UPDATE_SIGNATURE = "updateSignature";
+    private static final String FIELD_ISSUES = "issues";
+    private static final String FIELD_LABELS = "labels";
+    private static final String FIELD_MILESTONES = "milestones";
+    private static final String FIELD_USERS = "users";
+
+    private final Gson gson = new Gson();
+    private final JsonReader reader;
+
+    private String repoId = null;
+    private UpdateSignature updateSignature = UpdateSignature.EMPTY;
+
+    private JSONModelReader(InputStream in) {
+        reader = new JsonReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        reader.setLenient(true);
+    }
+
+    /**
+     * Reads a whole repository into a new Model.
+     * @throws JsonSyntaxException if the data is not a valid stored repository
+     */
+    public static Model readModel(InputStream in) throws IOException {
+        return new JSONModelReader(in).model();
+    }
+
+    /**
+     * Reads only the repoId and the update signature of a stored repository, stopping
+     * as soon as they are found. The cost is thus independent of the size of the repository.
+     * @throws JsonSyntaxException if the data is not a valid stored repository
+     */
+    public static ImmutablePair<String, UpdateSignature> readHeader(InputStream in) throws IOException {
+        return new JSONModelReader(in).header();
+    }
+
+    private Model model() throws IOException {
+        List<TurboIssue> issues = new ArrayList<>();
+        List<TurboLabel> labels = new ArrayList<>();
+        List<TurboMilestone> milestones = new ArrayList<>();
+        List<TurboUser> users = new ArrayList<>();
+
+        try {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                case FIELD_REPO_ID:
+                    repoId = reader.nextString();
+                    break;
+                case FIELD_UPDATE_SIGNATURE:
+                    readUpdateSignature();
+                    break;
+                case FIELD_ISSUES:
+                    readList(issues, SerializableIssue.class, TurboIssue::new);
+                    break;
+                case FIELD_LABELS:
+                    readList(labels, SerializableLabel.class, TurboLabel::new);
+                    break;
+                case FIELD_MILESTONES:
+                    readList(milestones, SerializableMilestone.class, TurboMilestone::new);
+                    break;
+                case FIELD_USERS:
+                    readList(users, SerializableUser.class, TurboUser::new);
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+                }
+            }
+            reader.endObject();
+        } catch (IllegalStateException | NumberFormatException | MalformedJsonException e) {
+            throw new JsonSyntaxException(e);
+        }
+
+        ensureRepoIdPresent();
+        return new Model(repoId, issues, labels, milestones, users, updateSignature);
+    }
+
+    private ImmutablePair<String, UpdateSignature> header() throws IOException {
+        boolean signatureFound = false;
+        try {
+            reader.beginObject();
+            while (reader.hasNext() && !(repoId != null && signatureFound)) {
+                String name = reader.nextName();
+                if (name.equals(FIELD_REPO_ID)) {
+                    repoId = reader.nextString();
+                } else if (name.equals(FIELD_UPDATE_SIGNATURE)) {
+                    readUpdateSignature();
+                    signatureFound = true;
+                } else {
+                    reader.skipValue();
+                }
+            }
+        } catch (IllegalStateException | NumberFormatException | MalformedJsonException e) {
+            throw new JsonSyntaxException(e);
+        }
+
+        ensureRepoIdPresent();
+        return new ImmutablePair<>(repoId, updateSignature);
+    }
+
+    private void readUpdateSignature() throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+        } else {
+            updateSignature = gson.fromJson(reader, UpdateSignature.class);
+        }
+    }
+
+    /**
+     * Converts each serialized element to its resource as soon as it is read, so that
+     * only one serialized element is alive at a time.
+     */
+    private <S, R> void readList(List<R> result, Class<S> serializedType,
+                                 BiFunction<String, S, R> resourceConstructor) throws IOException {
+        ensureRepoIdPresent();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            S serialized = gson.fromJson(reader, serializedType);
+            result.add(resourceConstructor.apply(repoId, serialized));
+        }
+        reader.endArray();
+    }
+
+    private void ensureRepoIdPresent() {
+        if (repoId == null) {
+            throw new JsonSyntaxException("Stored repository does not start with its " + FIELD_REPO_ID);
+        }
+    }
+}
@@ -1,8 +1,10 @@
 package backend.json;
 
+import backend.resource.serialization.SerializableChanges;
 import backend.resource.serialization.SerializableModel;
 
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 /**
  * Same as JSONStore, but with the save function disabled.
@@ -18,4 +20,10 @@ public class JSONStoreStub extends JSONStore {
     public CompletableFuture<Boolean> saveRepository(String repoId, SerializableModel model) {
         return CompletableFuture.completedFuture(false);
     }
+
+    @Override
+    public CompletableFuture<Boolean> saveChanges(String repoId, SerializableChanges changes,
+                                                  Supplier<SerializableModel> snapshot) {
+        return CompletableFuture.completedFuture(false);
+    }
 }
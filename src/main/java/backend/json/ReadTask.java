@@ -1,17 +1,16 @@
 package backend.json;
 
 import backend.interfaces.RepoStore;
+import backend.interfaces.StoreJournal;
 import backend.interfaces.StoreTask;
 import backend.resource.Model;
-import backend.resource.serialization.SerializableModel;
-import com.google.gson.Gson;
 import com.google.gson.JsonParseException;
-import com.google.gson.reflect.TypeToken;
 import org.apache.logging.log4j.Logger;
 import util.HTLog;
 import util.exceptions.JSONLoadException;
 import util.exceptions.RepoStoreException;
 
+import java.io.IOException;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 
@@ -45,24 +44,24 @@ class ReadTask extends StoreTask {
      *         retrieved from the local store or is corrupted
      */
     private Model load(String repoId) throws RepoStoreException {
-        Optional<String> input = RepoStore.read(repoId);
+        Optional<Model> model;
+        try {
+            model = RepoStore.read(repoId, JSONModelReader::readModel);
+        } catch (NullPointerException | JsonParseException e) {
+            logger.error(HTLog.format(repoId, "JSON data is corrupted"));
+            throw new JSONLoadException();
+        }
 
-        if (!input.isPresent()) {
+        if (!model.isPresent()) {
             logger.error("Unable to load " + repoId + " from JSON cache");
             throw new JSONLoadException();
-        } else {
-            logger.info(HTLog.format(repoId, "Data loaded from JSON cache"));
-
-            try {
-                SerializableModel sModel = new Gson().fromJson(input.get(),
-                        new TypeToken<SerializableModel>(){}.getType());
-
-                return new Model(sModel);
-            } catch (NullPointerException | JsonParseException e) {
-                logger.error(HTLog.format(repoId, "JSON data is corrupted"));
-                throw new JSONLoadException();
-            }
+        }
+        logger.info(HTLog.format(repoId, "Data loaded from JSON cache"));
+        try {
+            return StoreJournal.replay(model.get());
+        } catch (IOException e) {
+            HTLog.error(logger, e);
+            throw new JSONLoadException();
         }
     }
 }
-
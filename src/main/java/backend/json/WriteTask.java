@@ -1,38 +1,58 @@
 package backend.json;
 
 import backend.interfaces.RepoStore;
-import backend.interfaces.StoreTask;
+import backend.interfaces.StoreJournal;
+import backend.interfaces.SaveTask;
 import backend.resource.serialization.SerializableModel;
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import com.google.gson.JsonIOException;
 import org.apache.logging.log4j.Logger;
 import util.HTLog;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.concurrent.CompletableFuture;
 
-class WriteTask extends StoreTask {
+class WriteTask extends SaveTask {
 
     private static final Logger logger = HTLog.get(WriteTask.class);
 
-    public final SerializableModel toSave;
-    public final CompletableFuture<Boolean> response;
+    private final int compressionLevel;
 
-    public WriteTask(String repoName, SerializableModel toSave, CompletableFuture<Boolean> response) {
-        super(repoName);
-        this.toSave = toSave;
-        this.response = response;
+    public WriteTask(String repoName, SerializableModel toSave, int compressionLevel,
+                     CompletableFuture<Boolean> response) {
+        super(repoName, toSave, response);
+        this.compressionLevel = compressionLevel;
     }
 
     @Override
-    public void run() {
-        response.complete(save(repoId, toSave));
+    protected boolean save(String repoId, SerializableModel model) {
+        return write(repoId, model, compressionLevel);
     }
 
-    private boolean save(String repoId, SerializableModel model) {
-        String output = new Gson().toJson(model);
-        boolean corruptedJson = RepoStore.write(repoId, output, model.issues.size());
+    static boolean write(String repoId, SerializableModel model, int compressionLevel) {
+        if (RepoStore.write(repoId, out -> writeJson(out, model), compressionLevel)) {
+            return true;
+        }
         logger.info(HTLog.format(repoId, "Written to JSON store"));
-        return corruptedJson;
+        // The journal only holds changes that are now part of the written repository
+        return StoreJournal.delete(repoId);
     }
-}
 
+    /**
+     * Serializes the model directly into the output stream, so that the JSON text
+     * of the whole repository is never held in memory at once.
+     */
+    private static void writeJson(OutputStream out, SerializableModel model) throws IOException {
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        try {
+            new Gson().toJson(model, SerializableModel.class, writer);
+        } catch (JsonIOException e) {
+            throw new IOException(e);
+        }
+        writer.flush();
+    }
+}
@@ -4,20 +4,74 @@ import backend.UpdateSignature;
 import backend.interfaces.IBaseModel;
 import backend.resource.serialization.SerializableModel;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.RandomAccess;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
+/**
+ * Immutable. The lists of resources are read-only, and resources are indexed by their
+ * identifying attribute when the model is constructed, so that lookups take constant time.
+ *
+ * Models are snapshots of a repository which share what has not changed between them:
+ * a model constructed from lists of resources of another model, such as when only some
+ * resources are updated, shares those lists and their indexes instead of copying them.
+ */
 @SuppressWarnings("unused")
 public class Model implements IBaseModel {
 
+    /**
+     * A read-only list of resources owned by models, together with its index.
+     */
+    private static final class Resources<K, T> extends AbstractList<T> implements RandomAccess {
+
+        private final List<T> items;
+        private final Map<K, T> index;
+
+        private Resources(List<T> items, Function<T, K> key) {
+            this.items = new ArrayList<>(items);
+            this.index = new HashMap<>(items.size() * 4 / 3 + 1);
+            // Where keys collide, the first item is kept, as a search of the list would find
+            this.items.forEach(item -> index.putIfAbsent(key.apply(item), item));
+        }
+
+        /**
+         * Returns the given list if it belongs to a model already, or else a copy of it.
+         */
+        @SuppressWarnings("unchecked")
+        static <K, T> Resources<K, T> of(List<T> items, Function<T, K> key) {
+            // Each type of resource is only ever indexed by the same key
+            return items instanceof Resources
+                ? (Resources<K, T>) items
+                : new Resources<>(items, key);
+        }
+
+        Optional<T> find(K key) {
+            return Optional.ofNullable(index.get(key));
+        }
+
+        @Override
+        public T get(int i) {
+            return items.get(i);
+        }
+
+        @Override
+        public int size() {
+            return items.size();
+        }
+    }
+
     private final UpdateSignature updateSignature;
     private final String repoId;
-    private final List<TurboIssue> issues;
-    private final List<TurboLabel> labels;
-    private final List<TurboMilestone> milestones;
-    private final List<TurboUser> users;
+    private final Resources<Integer, TurboIssue> issues;
+    private final Resources<String, TurboLabel> labels;
+    private final Resources<Integer, TurboMilestone> milestones;
+    private final Resources<String, TurboUser> users;
 
     /**
      * Standard constructor.
@@ -28,10 +82,10 @@ public class Model implements IBaseModel {
 
         this.updateSignature = updateSignature;
         this.repoId = repoId;
-        this.issues = issues;
-        this.labels = labels;
-        this.milestones = milestones;
-        this.users = users;
+        this.issues = Resources.of(issues, TurboIssue::getId);
+        this.labels = Resources.of(labels, TurboLabel::getActualName);
+        this.milestones = Resources.of(milestones, TurboMilestone::getId);
+        this.users = Resources.of(users, TurboUser::getLoginName);
     }
 
     /**
@@ -41,53 +95,38 @@ public class Model implements IBaseModel {
     public Model(String repoId, List<TurboIssue> issues,
         List<TurboLabel> labels, List<TurboMilestone> milestones, List<TurboUser> users) {
 
-        this.updateSignature = UpdateSignature.EMPTY;
-        this.repoId = repoId;
-        this.issues = issues;
-        this.labels = labels;
-        this.milestones = milestones;
-        this.users = users;
+        this(repoId, issues, labels, milestones, users, UpdateSignature.EMPTY);
     }
 
     /**
      * Constructor for the empty model.
      */
     public Model(String repoId) {
-        this.updateSignature = UpdateSignature.EMPTY;
-        this.repoId = repoId;
-        this.issues = new ArrayList<>();
-        this.labels = new ArrayList<>();
-        this.milestones = new ArrayList<>();
-        this.users = new ArrayList<>();
+        this(repoId, new ArrayList<>(), new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
     }
 
     /**
-     * Copy constructor.
+     * Copy constructor. As models are immutable, the copy shares everything with the original.
      */
     public Model(Model model) {
-        this.updateSignature = model.updateSignature;
-        this.repoId = model.getRepoId();
-        this.issues = new ArrayList<>(model.getIssues());
-        this.labels = new ArrayList<>(model.getLabels());
-        this.milestones = new ArrayList<>(model.getMilestones());
-        this.users = new ArrayList<>(model.getUsers());
+        this(model.repoId, model.issues, model.labels, model.milestones, model.users, model.updateSignature);
     }
 
     public Model(SerializableModel model) {
-        this.updateSignature = model.updateSignature;
-        this.repoId = model.repoId;
-        this.issues = model.issues.stream()
-            .map(i -> new TurboIssue(model.repoId, i))
-            .collect(Collectors.toList());
-        this.labels = model.labels.stream()
-            .map(l -> new TurboLabel(model.repoId, l))
-            .collect(Collectors.toList());
-        this.milestones = model.milestones.stream()
-            .map(m -> new TurboMilestone(model.repoId, m))
-            .collect(Collectors.toList());
-        this.users = model.users.stream()
-            .map(u -> new TurboUser(model.repoId, u))
-            .collect(Collectors.toList());
+        this(model.repoId,
+            model.issues.stream()
+                .map(i -> new TurboIssue(model.repoId, i))
+                .collect(Collectors.toList()),
+            model.labels.stream()
+                .map(l -> new TurboLabel(model.repoId, l))
+                .collect(Collectors.toList()),
+            model.milestones.stream()
+                .map(m -> new TurboMilestone(model.repoId, m))
+                .collect(Collectors.toList()),
+            model.users.stream()
+                .map(u -> new TurboUser(model.repoId, u))
+                .collect(Collectors.toList()),
+            model.updateSignature);
     }
 
     public String getRepoId() {
@@ -100,22 +139,22 @@ public class Model implements IBaseModel {
 
     @Override
     public List<TurboIssue> getIssues() {
-        return new ArrayList<>(issues);
+        return issues;
     }
 
     @Override
     public List<TurboLabel> getLabels() {
-        return new ArrayList<>(labels);
+        return labels;
     }
 
     @Override
     public List<TurboMilestone> getMilestones() {
-        return new ArrayList<>(milestones);
+        return milestones;
     }
 
     @Override
     public List<TurboUser> getUsers() {
-        return new ArrayList<>(users);
+        return users;
     }
 
     private void ______OPERATIONS_____() {
@@ -123,32 +162,17 @@ public class Model implements IBaseModel {
 
     public Optional<TurboIssue> getIssueById(int issueId) {
         assert issueId >= 1 : "Invalid issue id " + issueId;
-        for (TurboIssue issue : getIssues()) {
-            if (issue.getId() == issueId) {
-                return Optional.of(issue);
-            }
-        }
-        return Optional.empty();
+        return issues.find(issueId);
     }
 
     public Optional<TurboLabel> getLabelByActualName(String labelName) {
         assert labelName != null && !labelName.isEmpty() : "Invalid label name " + labelName;
-        for (TurboLabel label : getLabels()) {
-            if (label.getActualName().equals(labelName)) {
-                return Optional.of(label);
-            }
-        }
-        return Optional.empty();
+        return labels.find(labelName);
     }
 
     public Optional<TurboUser> getUserByLogin(String login) {
         assert login != null && !login.isEmpty() : "Invalid user name " + login;
-        for (TurboUser user : getUsers()) {
-            if (user.getLoginName().equals(login)) {
-                return Optional.of(user);
-            }
-        }
-        return Optional.empty();
+        return users.find(login);
     }
 
     public Optional<TurboMilestone> getMilestoneByTitle(String title) {
@@ -163,12 +187,7 @@ public class Model implements IBaseModel {
 
     public Optional<TurboMilestone> getMilestoneById(int id) {
         assert id >= 1 : "Invalid milestone id " + id;
-        for (TurboMilestone milestone : getMilestones()) {
-            if (milestone.getId() == id) {
-                return Optional.of(milestone);
-            }
-        }
-        return Optional.empty();
+        return milestones.find(id);
     }
 
     public Optional<TurboMilestone> getMilestoneOfIssue(TurboIssue issue) {
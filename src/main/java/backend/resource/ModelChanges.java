@@ -0,0 +1,123 @@
+package backend.resource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * The resources of a repository that changed between two snapshots of its model, along with
+ * the later snapshot.
+ *
+ * Lists of resources that models share are not compared, so finding the changes to resources
+ * that were not updated costs nothing.
+ *
+ * 100% immutable.
+ */
+public class ModelChanges {
+
+    /**
+     * The resources of one kind that were added, changed or removed. Added and changed resources
+     * are those of the later snapshot, and removed ones those of the earlier snapshot.
+     */
+    public static final class Delta<T> {
+        public final List<T> added;
+        public final List<T> changed;
+        public final List<T> removed;
+
+        private Delta(List<T> added, List<T> changed, List<T> removed) {
+            this.added = Collections.unmodifiableList(added);
+            this.changed = Collections.unmodifiableList(changed);
+            this.removed = Collections.unmodifiableList(removed);
+        }
+
+        public boolean isEmpty() {
+            return added.isEmpty() && changed.isEmpty() && removed.isEmpty();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d added, %d changed, %d removed", added.size(), changed.size(), removed.size());
+        }
+    }
+
+    public final String repoId;
+    public final Model updated;
+
+    public final Delta<TurboIssue> issues;
+    public final Delta<TurboLabel> labels;
+    public final Delta<TurboMilestone> milestones;
+    public final Delta<TurboUser> users;
+
+    private ModelChanges(Model updated, Delta<TurboIssue> issues, Delta<TurboLabel> labels,
+                         Delta<TurboMilestone> milestones, Delta<TurboUser> users) {
+        this.repoId = updated.getRepoId();
+        this.updated = updated;
+        this.issues = issues;
+        this.labels = labels;
+        this.milestones = milestones;
+        this.users = users;
+    }
+
+    /**
+     * Finds the changes from one snapshot of the model of a repository to a later one.
+     * Runs in time linear in the number of resources in lists that the two do not share.
+     */
+    public static ModelChanges between(Model previous, Model updated) {
+        assert previous.getRepoId().equalsIgnoreCase(updated.getRepoId())
+            : "Models of different repositories " + previous.getRepoId() + " and " + updated.getRepoId();
+        return new ModelChanges(updated,
+            diff(previous.getIssues(), updated.getIssues(), TurboIssue::getId),
+            diff(previous.getLabels(), updated.getLabels(), TurboLabel::getActualName),
+            diff(previous.getMilestones(), updated.getMilestones(), TurboMilestone::getId),
+            diff(previous.getUsers(), updated.getUsers(), TurboUser::getLoginName));
+    }
+
+    private static <K, T> Delta<T> diff(List<T> previous, List<T> updated, Function<T, K> key) {
+        List<T> added = new ArrayList<>();
+        List<T> changed = new ArrayList<>();
+        List<T> removed = new ArrayList<>();
+        if (previous == updated) {
+            return new Delta<>(added, changed, removed);
+        }
+
+        Map<K, T> previousByKey = new HashMap<>(previous.size() * 4 / 3 + 1);
+        previous.forEach(item -> previousByKey.putIfAbsent(key.apply(item), item));
+
+        for (T item : updated) {
+            T previousItem = previousByKey.remove(key.apply(item));
+            if (previousItem == null) {
+                added.add(item);
+            } else if (!previousItem.equals(item)) {
+                changed.add(item);
+            }
+        }
+        // Whatever is left was not found in the updated list; previous keeps the original order
+        for (T item : previous) {
+            if (previousByKey.remove(key.apply(item)) != null) {
+                removed.add(item);
+            }
+        }
+        return new Delta<>(added, changed, removed);
+    }
+
+    public boolean isEmpty() {
+        return issues.isEmpty() && labels.isEmpty() && milestones.isEmpty() && users.isEmpty();
+    }
+
+    /**
+     * Returns true if any labels, milestones or users changed, which may change how any issue
+     * of the repository is shown.
+     */
+    public boolean affectsAllIssues() {
+        return !labels.isEmpty() || !milestones.isEmpty() || !users.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: issues %s; labels %s; milestones %s; users %s",
+            repoId, issues, labels, milestones, users);
+    }
+}
@@ -8,34 +8,103 @@ import prefs.Preferences;
 
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 /**
  * Thread-safe. The only top-level state in the application.
+ *
+ * The models of open repositories are published together as an immutable snapshot. Readers,
+ * such as the UI thread, never block: they see the snapshot current when they read it.
+ * Writers are serialised, and publish a modified copy of the snapshot.
  */
 @SuppressWarnings("unused")
 public class MultiModel implements IModel {
 
-    private final HashMap<String, Model> models;
+    /**
+     * The models of open repositories at some point in time, and the resources of all of them
+     * together, which are only gathered when first needed.
+     */
+    private static final class Snapshot {
+        private final Map<String, Model> models;
+
+        private volatile List<TurboIssue> issues;
+        private volatile List<TurboLabel> labels;
+        private volatile List<TurboMilestone> milestones;
+        private volatile List<TurboUser> users;
+
+        private Snapshot(Map<String, Model> models) {
+            this.models = Collections.unmodifiableMap(models);
+        }
+
+        private List<TurboIssue> getIssues() {
+            if (issues == null) {
+                issues = gather(Model::getIssues);
+            }
+            return issues;
+        }
+
+        private List<TurboLabel> getLabels() {
+            if (labels == null) {
+                labels = gather(Model::getLabels);
+            }
+            return labels;
+        }
+
+        private List<TurboMilestone> getMilestones() {
+            if (milestones == null) {
+                milestones = gather(Model::getMilestones);
+            }
+            return milestones;
+        }
+
+        private List<TurboUser> getUsers() {
+            if (users == null) {
+                users = gather(Model::getUsers);
+            }
+            return users;
+        }
+
+        private <T> List<T> gather(Function<Model, List<T>> resources) {
+            List<T> result = new ArrayList<>();
+            models.values().forEach(m -> result.addAll(resources.apply(m)));
+            return Collections.unmodifiableList(result);
+        }
+    }
+
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>(new Snapshot(new HashMap<>()));
     private final Preferences prefs;
 
     // A pending repository is one that has been requested to load but has
     // not finished loading. We keep track of it because we don't want repeated
     // requests for the same repository to load it multiple times.
-    private final HashSet<String> pendingRepositories;
+    private final Set<String> pendingRepositories;
 
     // Guaranteed to have a value throughout
-    private String defaultRepo = null;
+    private volatile String defaultRepo = null;
 
     private static final Logger logger = LogManager.getLogger(MultiModel.class.getName());
 
     public MultiModel(Preferences prefs) {
-        this.models = new HashMap<>();
-        this.pendingRepositories = new HashSet<>();
+        this.pendingRepositories = ConcurrentHashMap.newKeySet();
         this.prefs = prefs;
     }
 
+    /**
+     * Publishes a snapshot with the models of the current one, modified by the given operation.
+     * Only called by writers, which hold the lock.
+     */
+    private void update(Consumer<Map<String, Model>> operation) {
+        assert Thread.holdsLock(this);
+        Map<String, Model> models = new HashMap<>(snapshot.get().models);
+        operation.accept(models);
+        snapshot.set(new Snapshot(models));
+    }
+
     public synchronized MultiModel addPending(Model model) {
         String repoId = model.getRepoId();
         Optional<String> matchingRepoId = pendingRepositories.stream()
@@ -43,43 +112,69 @@ public class MultiModel implements IModel {
                 .findFirst();
         assert matchingRepoId.isPresent() : "No pending repository " + repoId + "!";
         pendingRepositories.remove(matchingRepoId.get());
-        add(model);
         preprocessNewIssues(model);
+        update(models -> models.put(repoId, model));
+        return this;
+    }
+
+    /**
+     * Replaces the model of a repository that is already open, such as after it is updated.
+     * Does nothing if the repository has been closed in the meantime.
+     */
+    public synchronized MultiModel replace(Model newModel) {
+        if (snapshot.get().models.containsKey(newModel.getRepoId())) {
+            preprocessUpdatedIssues(Collections.singletonList(newModel));
+            update(models -> models.put(newModel.getRepoId(), newModel));
+        }
         return this;
     }
 
-    private synchronized MultiModel add(Model model) {
-        this.models.put(model.getRepoId(), model);
+    /**
+     * Like replace, for an update whose changes are already known, so that only the issues
+     * that changed are processed.
+     */
+    public synchronized MultiModel replace(ModelChanges changes) {
+        if (snapshot.get().models.containsKey(changes.repoId)) {
+            preprocessChangedIssues(changes);
+            update(models -> models.put(changes.repoId, changes.updated));
+        }
         return this;
     }
 
     public synchronized MultiModel removeRepoModelById(String repoId) {
         Optional<Model> repoModelToBeDeleted = getModelById(repoId);
         if (repoModelToBeDeleted.isPresent()) {
-            this.models.remove(repoModelToBeDeleted.get().getRepoId());
+            update(models -> models.remove(repoModelToBeDeleted.get().getRepoId()));
         } else {
             logger.error("RepoModel to be deleted does not exist.");
         }
         return this;
     }
 
-    public synchronized Model get(String repoId) {
-        return models.get(repoId);
+    public Model get(String repoId) {
+        return snapshot.get().models.get(repoId);
     }
 
-    public synchronized List<Model> toModels() {
-        return new ArrayList<>(models.values());
+    public List<Model> toModels() {
+        return new ArrayList<>(snapshot.get().models.values());
     }
 
     public synchronized MultiModel replace(List<Model> newModels) {
         preprocessUpdatedIssues(newModels);
-        this.models.clear();
-        newModels.forEach(this::add);
+        update(models -> {
+            models.clear();
+            newModels.forEach(model -> models.put(model.getRepoId(), model));
+        });
         return this;
     }
 
-    public synchronized void insertMetadata(String repoId, Map<Integer, IssueMetadata> metadata, String currentUser) {
-        models.get(repoId).getIssues().forEach(issue -> {
+    /**
+     * Metadata is state of the issues themselves, like whether they have been read, so it is
+     * set on the issues of the current model rather than on copies. An update that reconciles
+     * against those issues then carries it over.
+     */
+    public void insertMetadata(String repoId, Map<Integer, IssueMetadata> metadata, String currentUser) {
+        get(repoId).getIssues().forEach(issue -> {
             if (metadata.containsKey(issue.getId())) {
                 IssueMetadata toBeInserted = metadata.get(issue.getId());
                 LocalDateTime nonSelfUpdatedAt = reconcileCreationDate(toBeInserted.getNonSelfUpdatedAt(),
@@ -110,48 +205,38 @@ public class MultiModel implements IModel {
     }
 
     @Override
-    public synchronized String getDefaultRepo() {
+    public String getDefaultRepo() {
         return defaultRepo;
     }
 
     @Override
-    public synchronized void setDefaultRepo(String repoId) {
+    public void setDefaultRepo(String repoId) {
         this.defaultRepo = repoId;
     }
 
     @Override
-    public synchronized List<TurboIssue> getIssues() {
-        List<TurboIssue> result = new ArrayList<>();
-        models.values().forEach(m -> result.addAll(m.getIssues()));
-        return result;
+    public List<TurboIssue> getIssues() {
+        return snapshot.get().getIssues();
     }
 
     @Override
-    public synchronized List<TurboLabel> getLabels() {
-        List<TurboLabel> result = new ArrayList<>();
-        models.values().forEach(m -> result.addAll(m.getLabels()));
-        return result;
+    public List<TurboLabel> getLabels() {
+        return snapshot.get().getLabels();
     }
 
     @Override
-    public synchronized List<TurboMilestone> getMilestones() {
-        List<TurboMilestone> result = new ArrayList<>();
-        models.values().forEach(m -> result.addAll(m.getMilestones()));
-        return result;
+    public List<TurboMilestone> getMilestones() {
+        return snapshot.get().getMilestones();
     }
 
     @Override
-    public synchronized List<TurboUser> getUsers() {
-        List<TurboUser> result = new ArrayList<>();
-        models.values().forEach(m -> result.addAll(m.getUsers()));
-        return result;
+    public List<TurboUser> getUsers() {
+        return snapshot.get().getUsers();
     }
 
     @Override
     public Optional<Model> getModelById(String repoId) {
-        return models.containsKey(repoId)
-            ? Optional.of(models.get(repoId))
-            : Optional.empty();
+        return Optional.ofNullable(snapshot.get().models.get(repoId));
     }
 
     @Override
@@ -182,7 +267,7 @@ public class MultiModel implements IModel {
             .flatMap(m -> m.getMilestoneOfIssue(issue));
     }
 
-    public synchronized boolean isRepositoryPending(String repoId) {
+    public boolean isRepositoryPending(String repoId) {
         return pendingRepositories.stream().anyMatch(pendingRepo -> pendingRepo.equalsIgnoreCase(repoId));
     }
 
@@ -210,26 +295,27 @@ public class MultiModel implements IModel {
      * @param newModels
      */
     private void preprocessUpdatedIssues(List<Model> newModels) {
-        // Updates preferences with the results of issues that have been updated after a refresh.
-        // This makes read issues show up again.
+        Map<String, Model> models = snapshot.get().models;
         for (Model model : newModels) {
             assert models.containsKey(model.getRepoId());
-            Model existingModel = models.get(model.getRepoId());
-            if (!existingModel.getIssues().equals(model.getIssues())) {
-                // Find issues that have changed and update preferences with them
-                for (int i = 1; i <= model.getIssues().size(); i++) {
-                    // TODO O(n^2), optimise by preprocessing into a map or sorting
-                    if (!existingModel.getIssueById(i).equals(model.getIssueById(i))) {
-                        assert model.getIssueById(i).isPresent();
-                        // It's no longer currently read, but it retains its updated time.
-                        // No changes to preferences.
-                        model.getIssueById(i).get().setIsCurrentlyRead(false);
-                    }
-                }
-            }
+            preprocessChangedIssues(ModelChanges.between(models.get(model.getRepoId()), model));
         }
     }
 
+    /**
+     * Called on the changes in an update of an existing model.
+     * Mutates TurboIssues with meta-information.
+     * @param changes
+     */
+    private void preprocessChangedIssues(ModelChanges changes) {
+        // Updates preferences with the results of issues that have been updated after a refresh.
+        // This makes read issues show up again.
+        // They are no longer currently read, but retain their updated times.
+        // No changes to preferences.
+        changes.issues.added.forEach(issue -> issue.setIsCurrentlyRead(false));
+        changes.issues.changed.forEach(issue -> issue.setIsCurrentlyRead(false));
+    }
+
     private void ______BOILERPLATE______() {
     }
 
@@ -238,12 +324,12 @@ public class MultiModel implements IModel {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         MultiModel that = (MultiModel) o;
-        return models.equals(that.models);
+        return snapshot.get().models.equals(that.snapshot.get().models);
     }
 
     @Override
     public int hashCode() {
-        return models.hashCode();
+        return snapshot.get().models.hashCode();
     }
 
 }
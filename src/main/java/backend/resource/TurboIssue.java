@@ -8,8 +8,11 @@ import util.Utility;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -55,6 +58,8 @@ public class TurboIssue {
 
     private final String repoId;
     private IssueMetadata metadata;
+    // If present, the description is read from here on demand instead of being held in memory
+    private Optional<Supplier<String>> descriptionSource;
     private Optional<LocalDateTime> markedReadAt;
     private boolean isCurrentlyRead;
 
@@ -101,6 +106,7 @@ public class TurboIssue {
         this.isPullRequest = issue.isPullRequest;
 
         this.description = issue.description;
+        this.descriptionSource = issue.descriptionSource;
         this.updatedAt = issue.updatedAt;
         this.commentCount = issue.commentCount;
         this.isOpen = issue.isOpen;
@@ -139,6 +145,7 @@ public class TurboIssue {
             ? Optional.empty()
             : Optional.of(issue.getMilestone().getNumber());
 
+        this.descriptionSource = Optional.empty();
         this.metadata = new IssueMetadata();
         this.repoId = repoId;
         this.markedReadAt = Optional.empty();
@@ -160,6 +167,7 @@ public class TurboIssue {
         this.labels = issue.getLabels();
         this.milestone = issue.getMilestone();
 
+        this.descriptionSource = Optional.empty();
         this.metadata = new IssueMetadata();
         this.repoId = repoId;
         this.markedReadAt = Optional.empty();
@@ -183,6 +191,7 @@ public class TurboIssue {
         this.labels = new ArrayList<>();
         this.milestone = Optional.empty();
 
+        this.descriptionSource = Optional.empty();
         this.metadata = new IssueMetadata();
         this.markedReadAt = Optional.empty();
         this.isCurrentlyRead = false;
@@ -215,39 +224,35 @@ public class TurboIssue {
     /**
      * Takes lists of TurboIssues and reconciles the changes between them,
      * returning a list of TurboIssues with updates from the second.
+     * Runs in time linear in the sizes of both lists.
      */
     public static List<TurboIssue> reconcile(String repoId, List<TurboIssue> existing, List<TurboIssue> changed) {
-        existing = new ArrayList<>(existing);
-        for (TurboIssue issue : changed) {
-            int id = issue.getId();
+        List<TurboIssue> result = new ArrayList<>(existing.size() + changed.size());
+        result.addAll(existing);
 
-            // TODO O(n^2), fix by preprocessing and copying into a map
-            Optional<Integer> corresponding = findIssueWithId(existing, id);
-            if (corresponding.isPresent()) {
+        // Positions of issues in the result by id, the first where ids repeat
+        Map<Integer, Integer> positions = new HashMap<>((existing.size() + changed.size()) * 4 / 3 + 1);
+        for (int i = 0; i < result.size(); i++) {
+            positions.putIfAbsent(result.get(i).getId(), i);
+        }
+
+        for (TurboIssue issue : changed) {
+            Integer corresponding = positions.get(issue.getId());
+            if (corresponding != null) {
 
                 // issue is constructed from an external Issue object.
                 // It won't have the transient state that its TurboIssue
                 // counterpart has, so we have to explicitly transfer it.
                 TurboIssue newIssue = new TurboIssue(issue);
-                newIssue.transferTransientState(existing.get(corresponding.get()));
+                newIssue.transferTransientState(result.get(corresponding));
 
-                existing.set(corresponding.get(), newIssue);
+                result.set(corresponding, newIssue);
             } else {
-                existing.add(new TurboIssue(issue));
+                positions.put(issue.getId(), result.size());
+                result.add(new TurboIssue(issue));
             }
         }
-        return existing;
-    }
-
-    private static Optional<Integer> findIssueWithId(List<TurboIssue> existing, int id) {
-        int i = 0;
-        for (TurboIssue issue : existing) {
-            if (issue.getId() == id) {
-                return Optional.of(i);
-            }
-            ++i;
-        }
-        return Optional.empty();
+        return result;
     }
 
     private void ______BOILERPLATE______() {
@@ -275,10 +280,19 @@ public class TurboIssue {
         this.title = title;
     }
     public String getDescription() {
-        return description;
+        // Not cached, so that memory use does not grow with the descriptions that have been viewed
+        return descriptionSource.map(Supplier::get).orElse(description);
     }
     public void setDescription(String description) {
         this.description = description;
+        this.descriptionSource = Optional.empty();
+    }
+    /**
+     * Makes the description load from the given source whenever it is needed.
+     */
+    public void setDescriptionSource(Supplier<String> descriptionSource) {
+        this.description = "";
+        this.descriptionSource = Optional.of(descriptionSource);
     }
     public LocalDateTime getUpdatedAt() {
         return updatedAt;
@@ -362,7 +376,7 @@ public class TurboIssue {
                 !(assignee != null ? !assignee.equals(issue.assignee) : issue.assignee != null) &&
                 !(createdAt != null ? !createdAt.equals(issue.createdAt) : issue.createdAt != null) &&
                 !(creator != null ? !creator.equals(issue.creator) : issue.creator != null) &&
-                !(description != null ? !description.equals(issue.description) : issue.description != null) &&
+                descriptionEquals(issue) &&
                 !(labels != null ? !labels.equals(issue.labels) : issue.labels != null) &&
                 !(milestone != null ? !milestone.equals(issue.milestone) : issue.milestone != null) &&
                 !(title != null ? !title.equals(issue.title) : issue.title != null) &&
@@ -371,6 +385,18 @@ public class TurboIssue {
                 isCurrentlyRead == issue.isCurrentlyRead;
     }
 
+    /**
+     * Avoids loading descriptions for copies of the same issue, which share their source.
+     */
+    private boolean descriptionEquals(TurboIssue issue) {
+        if (descriptionSource.isPresent() && descriptionSource.equals(issue.descriptionSource)) {
+            return true;
+        }
+        String description = getDescription();
+        String otherDescription = issue.getDescription();
+        return description != null ? description.equals(otherDescription) : otherDescription == null;
+    }
+
     @Override
     public int hashCode() {
         int result = id;
@@ -379,6 +405,7 @@ public class TurboIssue {
         result = 31 * result + (isPullRequest ? 1 : 0);
         result = 31 * result + (isCurrentlyRead ? 1 : 0);
         result = 31 * result + (title != null ? title.hashCode() : 0);
+        String description = getDescription();
         result = 31 * result + (description != null ? description.hashCode() : 0);
         result = 31 * result + (updatedAt != null ? updatedAt.hashCode() : 0);
         result = 31 * result + (markedReadAt != null ? markedReadAt.hashCode() : 0);
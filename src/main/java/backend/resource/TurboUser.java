@@ -43,6 +43,13 @@ public class TurboUser {
         this.repoId = replaceNull(repoId, "");
     }
 
+    public TurboUser(String repoId, String loginName, String realName, String avatarURL) {
+        this.loginName = replaceNull(loginName, "");
+        this.realName = replaceNull(realName, "");
+        this.avatarURL = replaceNull(avatarURL, "");
+        this.repoId = replaceNull(repoId, "");
+    }
+
     public TurboUser(String repoId, User user) {
         this.loginName = replaceNull(user.getLogin(), "");
         this.realName = replaceNull(user.getName(), "");
@@ -0,0 +1,86 @@
+package backend.resource.serialization;
+
+import backend.UpdateSignature;
+import backend.resource.Model;
+import backend.resource.ModelChanges;
+import backend.resource.TurboIssue;
+import backend.resource.TurboLabel;
+import backend.resource.TurboMilestone;
+import backend.resource.TurboUser;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * The changes made to a repository in an update, as recorded in the journal of a RepoStore.
+ *
+ * Issues are never removed from a repository, so only the issues that were added or changed
+ * are recorded. Labels, milestones and users are recorded in full if any of them changed,
+ * as they are few in number; they are null otherwise.
+ *
+ * 100% immutable.
+ */
+public class SerializableChanges {
+    public final UpdateSignature updateSignature;
+
+    public final List<SerializableIssue> issues;
+    public final List<SerializableLabel> labels;
+    public final List<SerializableMilestone> milestones;
+    public final List<SerializableUser> users;
+
+    public SerializableChanges(Model previous, Model updated) {
+        this(ModelChanges.between(previous, updated));
+    }
+
+    public SerializableChanges(ModelChanges changes) {
+        Model updated = changes.updated;
+        this.updateSignature = updated.getUpdateSignature();
+
+        List<SerializableIssue> changedIssues = new ArrayList<>();
+        changes.issues.changed.forEach(issue -> changedIssues.add(new SerializableIssue(issue)));
+        changes.issues.added.forEach(issue -> changedIssues.add(new SerializableIssue(issue)));
+        this.issues = changedIssues;
+
+        this.labels = changes.labels.isEmpty()
+            ? null
+            : updated.getLabels().stream().map(SerializableLabel::new).collect(Collectors.toList());
+        this.milestones = changes.milestones.isEmpty()
+            ? null
+            : updated.getMilestones().stream().map(SerializableMilestone::new).collect(Collectors.toList());
+        this.users = changes.users.isEmpty()
+            ? null
+            : updated.getUsers().stream().map(SerializableUser::new).collect(Collectors.toList());
+    }
+
+    /**
+     * Returns a new Model with these changes applied to the given one.
+     */
+    public Model applyTo(Model model) {
+        String repoId = model.getRepoId();
+
+        // Changed issues keep their position; new ones are added at the end
+        Map<Integer, TurboIssue> issuesById = new LinkedHashMap<>();
+        for (TurboIssue issue : model.getIssues()) {
+            issuesById.put(issue.getId(), issue);
+        }
+        for (SerializableIssue issue : issues) {
+            issuesById.put(issue.getId(), new TurboIssue(repoId, issue));
+        }
+
+        List<TurboLabel> newLabels = labels == null
+            ? model.getLabels()
+            : labels.stream().map(l -> new TurboLabel(repoId, l)).collect(Collectors.toList());
+        List<TurboMilestone> newMilestones = milestones == null
+            ? model.getMilestones()
+            : milestones.stream().map(m -> new TurboMilestone(repoId, m)).collect(Collectors.toList());
+        List<TurboUser> newUsers = users == null
+            ? model.getUsers()
+            : users.stream().map(u -> new TurboUser(repoId, u)).collect(Collectors.toList());
+
+        return new Model(repoId, new ArrayList<>(issuesById.values()),
+            newLabels, newMilestones, newUsers, updateSignature);
+    }
+}
@@ -1,13 +1,19 @@
 package backend.stub;
 
+import backend.IssueMetadata;
+import backend.MetadataCache;
 import backend.github.DownloadMetadataTask;
 import backend.interfaces.TaskRunner;
 
-import java.util.List;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public class DownloadMetadataTaskStub extends DownloadMetadataTask {
 
-    public DownloadMetadataTaskStub(TaskRunner taskRunner, DummyRepo repo, String repoId, List<Integer> issueIds) {
-        super(taskRunner, repo, repoId, issueIds);
+    public DownloadMetadataTaskStub(TaskRunner taskRunner, DummyRepo repo, String repoId,
+                                    Map<Integer, LocalDateTime> issues, MetadataCache cache,
+                                    int maxConnections, Consumer<Map<Integer, IssueMetadata>> onChunk) {
+        super(taskRunner, repo, repoId, issues, cache, maxConnections, onChunk);
     }
 }
@@ -11,10 +11,12 @@ import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.ImmutableTriple;
 import org.eclipse.egit.github.core.Comment;
 import org.eclipse.egit.github.core.Label;
+import org.eclipse.egit.github.core.event.Event;
 import ui.UI;
 import util.events.testevents.ClearLogicModelEvent;
 import util.events.testevents.UpdateDummyRepoEventHandler;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -136,14 +138,28 @@ public class DummyRepo implements Repo {
         return getRepoState(repoId).getCollaborators();
     }
 
+    /**
+     * Always sends the events, without an ETag.
+     */
+    @Override
+    public ImmutablePair<List<TurboIssueEvent>, String> getUpdatedEvents(String repoId, int issueId, String eTag) {
+        return new ImmutablePair<>(getRepoState(repoId).getEvents(issueId), null);
+    }
+
+    /**
+     * Always sends the comments, without an ETag.
+     */
     @Override
-    public List<TurboIssueEvent> getEvents(String repoId, int issueId) {
-        return getRepoState(repoId).getEvents(issueId);
+    public ImmutablePair<List<Comment>, String> getUpdatedComments(String repoId, int issueId, String eTag) {
+        return new ImmutablePair<>(getRepoState(repoId).getComments(issueId), null);
     }
 
+    /**
+     * The dummy repository has no events feed, so it never changes.
+     */
     @Override
-    public List<Comment> getComments(String repoId, int issueId) {
-        return getRepoState(repoId).getComments(issueId);
+    public ImmutableTriple<List<Event>, String, Integer> getRepoEvents(String repoId, String eTag) {
+        return new ImmutableTriple<>(new ArrayList<>(), eTag, 0);
     }
 
     @Override
@@ -165,4 +181,9 @@ public class DummyRepo implements Repo {
     public ImmutablePair<Integer, Long> getRateLimitResetTime() {
         return new ImmutablePair<>(3500, new Date().getTime() + 2700000);
     }
+
+    @Override
+    public int getRemainingRequests() {
+        return 3500;
+    }
 }
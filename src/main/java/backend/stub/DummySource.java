@@ -1,6 +1,7 @@
 package backend.stub;
 
 import backend.IssueMetadata;
+import backend.MetadataCache;
 import backend.UserCredentials;
 import backend.interfaces.RepoSource;
 import backend.resource.Model;
@@ -8,13 +9,16 @@ import backend.resource.TurboIssue;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import util.Futures;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 public class DummySource extends RepoSource {
 
     private final DummyRepo dummy = new DummyRepo();
+    private final MetadataCache metadataCache = new MetadataCache();
 
     @Override
     public String getName() {
@@ -39,8 +43,12 @@ public class DummySource extends RepoSource {
     }
 
     @Override
-    public CompletableFuture<Map<Integer, IssueMetadata>> downloadMetadata(String repoId, List<Integer> issues) {
-        return addTask(new DownloadMetadataTaskStub(this, dummy, repoId, issues)).response;
+    public CompletableFuture<Map<Integer, IssueMetadata>> downloadMetadata(String repoId,
+                                                                           Map<Integer, LocalDateTime> issues,
+                                                                           int maxConnections,
+                                                                           Consumer<Map<Integer, IssueMetadata>> onChunk) {
+        return addTask(new DownloadMetadataTaskStub(this, dummy, repoId, issues, metadataCache,
+            maxConnections, onChunk)).response;
     }
 
     @Override
@@ -48,6 +56,11 @@ public class DummySource extends RepoSource {
         return addTask(new ReplaceIssueLabelsTaskStub(this, dummy, issue.getRepoId(), issue.getId(), labels)).response;
     }
 
+    @Override
+    public boolean removeMetadata(String repoId) {
+        return metadataCache.remove(repoId);
+    }
+
     @Override
     public CompletableFuture<Boolean> isRepositoryValid(String repoId) {
         return Futures.unit(true);
@@ -58,4 +71,9 @@ public class DummySource extends RepoSource {
         return addTask(new CheckRateLimitTaskStub(this, dummy)).response;
     }
 
+    @Override
+    public int getRemainingRequests() {
+        return dummy.getRemainingRequests();
+    }
+
 }
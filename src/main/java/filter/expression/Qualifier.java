@@ -161,6 +161,14 @@ public class Qualifier implements FilterExpression {
                 filterQualifierNames.contains(UPDATED_BY_OTHERS));
     }
 
+    /**
+     * Determines whether issues may start or stop satisfying the expression as time passes, without
+     * any of them changing. The updated qualifiers count the hours up to the current time.
+     */
+    public static boolean isTimeRelative(FilterExpression expression) {
+        return !expression.find(q -> q.getName().startsWith(UPDATED)).isEmpty();
+    }
+
     /**
      * For testing. Stubs the current time so time-related qualifiers work properly.
      */
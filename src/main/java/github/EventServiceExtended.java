@@ -0,0 +1,29 @@
+package github;
+
+import org.eclipse.egit.github.core.IRepositoryIdProvider;
+import org.eclipse.egit.github.core.event.Event;
+import org.eclipse.egit.github.core.client.PagedRequest;
+import org.eclipse.egit.github.core.service.EventService;
+
+import static org.eclipse.egit.github.core.client.PagedRequest.PAGE_FIRST;
+
+public class EventServiceExtended extends EventService {
+
+    public static final String HEADER_POLL_INTERVAL = "X-Poll-Interval";
+
+    // The most events that GitHub sends on a page of a feed
+    public static final int MAX_EVENTS_PAGE_SIZE = 100;
+
+    public EventServiceExtended(GitHubClientExtended client) {
+        super(client);
+    }
+
+    /**
+     * Creates a request for the first page of the events feed of a repository, newest events first.
+     * @param repository
+     * @return request for as many events as fit on a page
+     */
+    public PagedRequest<Event> createRepoEventsRequest(IRepositoryIdProvider repository) {
+        return createRepoEventRequest(repository, PAGE_FIRST, MAX_EVENTS_PAGE_SIZE);
+    }
+}
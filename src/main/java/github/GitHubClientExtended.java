@@ -7,6 +7,8 @@ import java.io.InputStream;
 import java.lang.reflect.Type;
 import java.net.HttpURLConnection;
 import java.util.Map;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
 
 import org.apache.commons.io.input.NullInputStream;
 import org.apache.commons.lang3.tuple.ImmutablePair;
@@ -30,9 +32,46 @@ public class GitHubClientExtended extends GitHubClient {
     // Request method for HEAD API call
     protected static final String METHOD_HEAD = "HEAD";
 
+    protected static final String HEADER_IF_NONE_MATCH = "If-None-Match";
+    protected static final String HEADER_ACCEPT_ENCODING = "Accept-Encoding";
+    protected static final String ENCODING_GZIP = "gzip";
+
+    private static final int GZIP_BUFFER_SIZE = 8192;
+
+    // System properties of the connection pool of HttpURLConnection
+    private static final String PROPERTY_KEEP_ALIVE = "http.keepAlive";
+    private static final String PROPERTY_MAX_CONNECTIONS = "http.maxConnections";
+
     public GitHubClientExtended() {
     }
 
+    /**
+     * Creates a client for the API at the given host, such as a local server in tests.
+     */
+    public GitHubClientExtended(String hostname, int port, String scheme) {
+        super(hostname, port, scheme);
+    }
+
+    /**
+     * Sets up the pool of keep-alive connections that HttpURLConnection reuses across requests,
+     * so that requests made one after another to the same host do not each pay for a new TCP
+     * connection and TLS handshake. At most maxConnectionsPerHost idle connections are kept open to
+     * each host; more can be open at once, but those are closed once their response is read.
+     *
+     * Takes effect only if called before the first request, and does not override settings given
+     * on the command line.
+     *
+     * @param maxConnectionsPerHost the number of idle connections kept open to each host
+     */
+    public static void configureConnectionPool(int maxConnectionsPerHost) {
+        if (System.getProperty(PROPERTY_KEEP_ALIVE) == null) {
+            System.setProperty(PROPERTY_KEEP_ALIVE, "true");
+        }
+        if (System.getProperty(PROPERTY_MAX_CONNECTIONS) == null) {
+            System.setProperty(PROPERTY_MAX_CONNECTIONS, String.valueOf(Math.max(1, maxConnectionsPerHost)));
+        }
+    }
+
     /**
      * Extends superclass method with connection timeout parameters.
      */
@@ -44,6 +83,17 @@ public class GitHubClientExtended extends GitHubClient {
         return connection;
     }
 
+    /**
+     * Extends superclass method to ask for compressed responses, which getStream decompresses.
+     * JSON compresses well, so this makes large downloads several times smaller.
+     */
+    @Override
+    protected HttpURLConnection configureRequest(HttpURLConnection request) {
+        super.configureRequest(request);
+        request.setRequestProperty(HEADER_ACCEPT_ENCODING, ENCODING_GZIP);
+        return request;
+    }
+
     /**
      * Utility method for creating a connection from a GitHubRequest.
      *
@@ -103,11 +153,21 @@ public class GitHubClientExtended extends GitHubClient {
      * @throws IOException
      */
     public GitHubEventsResponse getEvent(GitHubRequest request) throws IOException {
-        HttpURLConnection httpRequest = createGet(request.generateUri());
-        String accept = request.getResponseContentType();
-        if (accept != null) {
-            httpRequest.setRequestProperty(HEADER_ACCEPT, accept);
-        }
+        return getEvent(request, Optional.empty());
+    }
+
+    /**
+     * Gets events with a conditional GET request. If they still have the given ETag, the response
+     * has no body and no events, as with getIfNoneMatch.
+     *
+     * @param request
+     * @param ifNoneMatch the value of the If-None-Match header, or empty for an unconditional request
+     * @return response
+     * @throws IOException
+     */
+    public GitHubEventsResponse getEvent(GitHubRequest request, Optional<String> ifNoneMatch)
+            throws IOException {
+        HttpURLConnection httpRequest = prepareRequest(createGet(request.generateUri()), request, ifNoneMatch);
         final int code = httpRequest.getResponseCode();
         updateRateLimits(httpRequest);
         if (isOk(code)) {
@@ -123,7 +183,7 @@ public class GitHubClientExtended extends GitHubClient {
 
             // The second is parsed again for event-specific information
             return new GitHubEventsResponse(ghResponse, reqIS3);
-        } else if (isEmpty(code)) {
+        } else if (code == NO_UPDATE_RESPONSE_CODE || isEmpty(code)) {
             GitHubResponse ghResponse = new GitHubResponse(httpRequest, null);
             return new GitHubEventsResponse(ghResponse, new NullInputStream(0));
         } else {
@@ -141,7 +201,10 @@ public class GitHubClientExtended extends GitHubClient {
     @SuppressWarnings("unchecked")
     public ImmutablePair<Integer, Long> getRateLimitResetTime() throws IOException {
         HttpURLConnection httpRequest = createGet("/rate_limit");
-        if (isOk(httpRequest.getResponseCode())) {
+        final int code = httpRequest.getResponseCode();
+        // Brings getRemainingRequests up to date too
+        updateRateLimits(httpRequest);
+        if (isOk(code)) {
             // We extract from rate, which is similar to resources.core
             String json = String.valueOf(
                     IOUtilities.inputStreamToByteArrayOutputStream(getStream(httpRequest)));
@@ -154,7 +217,23 @@ public class GitHubClientExtended extends GitHubClient {
 
             return new ImmutablePair<>(remaining, reset);
         } else {
-            throw new IOException(httpRequest.getResponseCode() + " " + httpRequest.getResponseMessage());
+            discardStream(httpRequest);
+            throw new IOException(code + " " + httpRequest.getResponseMessage());
+        }
+    }
+
+    /**
+     * Reads the rest of a response and closes it. A connection is only returned to the pool once
+     * its response has been read, so one whose response is not needed would otherwise not be reused.
+     */
+    private void discardStream(HttpURLConnection request) {
+        try (InputStream stream = getStream(request)) {
+            if (stream != null) {
+                IOUtilities.inputStreamToByteArrayOutputStream(stream);
+            }
+        } catch (IOException e) {
+            // The connection is not reused, which is all that is lost
+            logger.warn("Could not read response to be discarded: " + e.getMessage());
         }
     }
 
@@ -166,11 +245,58 @@ public class GitHubClientExtended extends GitHubClient {
      * @throws IOException
      */
     public ImmutablePair<HttpURLConnection, GitHubResponse> head(GitHubRequest request) throws IOException {
-        HttpURLConnection httpRequest = createHead(request.generateUri());
+        return send(prepareRequest(createHead(request.generateUri()), request, Optional.empty()), request, false);
+    }
+
+    /**
+     * Gets a page with a conditional GET request. If the page still has the given ETag, it is not
+     * sent again: the response has status 304 Not Modified and no body, and does not count against
+     * the rate limit.
+     *
+     * @param request for the API call
+     * @param ifNoneMatch the value of the If-None-Match header, or empty for an unconditional request
+     * @return a pair of HTTP connection and response for the API call
+     * @throws IOException
+     */
+    public ImmutablePair<HttpURLConnection, GitHubResponse> getIfNoneMatch(GitHubRequest request,
+                                                                           Optional<String> ifNoneMatch)
+            throws IOException {
+        return send(prepareRequest(createGet(request.generateUri()), request, ifNoneMatch), request, true);
+    }
+
+    /**
+     * Sets the headers of a connection for the given request.
+     *
+     * @param httpRequest the connection to the URI of the request
+     * @param request for the API call
+     * @param ifNoneMatch the value of the If-None-Match header, or empty for an unconditional request
+     * @return the connection
+     */
+    private HttpURLConnection prepareRequest(HttpURLConnection httpRequest, GitHubRequest request,
+                                             Optional<String> ifNoneMatch) {
         String accept = request.getResponseContentType();
         if (accept != null) {
             httpRequest.setRequestProperty(HEADER_ACCEPT, accept);
         }
+        if (ifNoneMatch.isPresent()) {
+            httpRequest.setRequestProperty(HEADER_IF_NONE_MATCH, ifNoneMatch.get());
+        }
+        return httpRequest;
+    }
+
+    /**
+     * Sends a request and pairs its connection with the response. Not modified and empty
+     * responses have no body, and neither do the others unless it is asked for.
+     *
+     * @param httpRequest the connection set up by prepareRequest
+     * @param request for the API call
+     * @param hasBody whether the body of a successful response is read
+     * @return a pair of HTTP connection and response for the API call
+     * @throws IOException if the request failed, or the response is an error
+     */
+    private ImmutablePair<HttpURLConnection, GitHubResponse> send(HttpURLConnection httpRequest,
+                                                                  GitHubRequest request, boolean hasBody)
+            throws IOException {
         logger.info(String.format("Requesting: %s %s",
                         httpRequest.getRequestMethod(), httpRequest.getURL().getFile()));
 
@@ -179,7 +305,11 @@ public class GitHubClientExtended extends GitHubClient {
 
         logger.info(String.format("%s responded with %d %s",
                         httpRequest.getURL().getPath(), code, httpRequest.getResponseMessage()));
-        if (isOk(code) || code == HttpURLConnection.HTTP_NOT_MODIFIED || isEmpty(code)) {
+        if (isOk(code) && hasBody) {
+            return new ImmutablePair<>(httpRequest, new GitHubResponse(httpRequest,
+                getBody(request, getStream(httpRequest))));
+        }
+        if (isOk(code) || code == NO_UPDATE_RESPONSE_CODE || isEmpty(code)) {
             return new ImmutablePair<>(httpRequest, new GitHubResponse(httpRequest, null));
         }
 
@@ -204,11 +334,16 @@ public class GitHubClientExtended extends GitHubClient {
     }
 
     /**
-     * Overridden to make public.
+     * Overridden to make public, and to decompress compressed responses.
      */
     @Override
     public InputStream getStream(HttpURLConnection request) throws IOException {
-        return super.getStream(request);
+        InputStream stream = super.getStream(request);
+        boolean isCompressed = ENCODING_GZIP.equalsIgnoreCase(request.getContentEncoding());
+        if (stream == null || !isCompressed || request.getContentLengthLong() == 0) {
+            return stream;
+        }
+        return new GZIPInputStream(stream, GZIP_BUFFER_SIZE);
     }
 
     /**
@@ -112,6 +112,10 @@ public class GitHubEventsResponse {
         }
     }
 
+    public GitHubResponse getResponse() {
+        return response;
+    }
+
     public ArrayList<TurboIssueEvent> getTurboIssueEvents() {
         return turboIssueEvents;
     }
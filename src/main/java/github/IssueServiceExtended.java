@@ -1,14 +1,18 @@
 package github;
 
+import com.google.gson.reflect.TypeToken;
 import org.eclipse.egit.github.core.*;
 import org.eclipse.egit.github.core.client.GitHubRequest;
 import org.eclipse.egit.github.core.client.GitHubResponse;
+import org.eclipse.egit.github.core.client.PagedRequest;
 import org.eclipse.egit.github.core.service.IssueService;
 
 import java.io.IOException;
 import java.net.HttpURLConnection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 import static org.eclipse.egit.github.core.client.IGitHubConstants.*;
 
@@ -147,6 +151,19 @@ public class IssueServiceExtended extends IssueService{
      * @throws IOException
      */
     public GitHubEventsResponse getIssueEvents(IRepositoryIdProvider repository, int issueId) throws IOException {
+        return getIssueEvents(repository, issueId, Optional.empty());
+    }
+
+    /**
+     * Retrieves a list of all issue events, unless they have not changed.
+     * @param repository
+     * @param issueId
+     * @param ifNoneMatch the value of the If-None-Match header, or empty for an unconditional request
+     * @return list of issue events, with no body if they have not changed
+     * @throws IOException
+     */
+    public GitHubEventsResponse getIssueEvents(IRepositoryIdProvider repository, int issueId,
+                                               Optional<String> ifNoneMatch) throws IOException {
         GitHubRequest request = createRequest();
         StringBuilder uri = new StringBuilder(SEGMENT_REPOS);
         uri.append('/').append(repository.generateId());
@@ -155,7 +172,25 @@ public class IssueServiceExtended extends IssueService{
         uri.append(SEGMENT_EVENTS);
         request.setUri(uri);
         request.setType(IssueEvent[].class);
-        GitHubEventsResponse response = ghClient.getEvent(request);
+        GitHubEventsResponse response = ghClient.getEvent(request, ifNoneMatch);
         return response;
     }
+
+    /**
+     * Creates a request for the comments on an issue, a page at a time.
+     * @param repository
+     * @param issueId
+     * @return request for the first page of comments
+     */
+    public PagedRequest<Comment> createCommentsRequest(IRepositoryIdProvider repository, int issueId) {
+        StringBuilder uri = new StringBuilder(SEGMENT_REPOS);
+        uri.append('/').append(repository.generateId());
+        uri.append(SEGMENT_ISSUES);
+        uri.append('/').append(issueId);
+        uri.append(SEGMENT_COMMENTS);
+        PagedRequest<Comment> request = createPagedRequest();
+        request.setUri(uri);
+        request.setType(new TypeToken<List<Comment>>() {}.getType());
+        return request;
+    }
 }
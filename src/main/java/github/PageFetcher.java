@@ -0,0 +1,144 @@
+package github;
+
+import static org.eclipse.egit.github.core.client.IGitHubConstants.PARAM_PAGE;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.eclipse.egit.github.core.client.GitHubResponse;
+import org.eclipse.egit.github.core.client.PagedRequest;
+import org.eclipse.egit.github.core.util.UrlUtils;
+
+/**
+ * Fetches pages of a paged request in parallel, once the number of pages is known from the
+ * Link header of the first one. All requests share a bounded number of connections, as GitHub
+ * discourages making many requests at once.
+ */
+public final class PageFetcher {
+
+    public static final int MAX_CONNECTIONS = 4;
+
+    private static final long IDLE_THREAD_TIMEOUT_SECONDS = 60;
+
+    private static final ThreadPoolExecutor pool = createPool();
+
+    private PageFetcher() {
+    }
+
+    private static ThreadPoolExecutor createPool() {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(MAX_CONNECTIONS, MAX_CONNECTIONS,
+            IDLE_THREAD_TIMEOUT_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /**
+     * Gets the given pages of a request in parallel.
+     * @see #getPages(GitHubClientExtended, PagedRequest, Collection, Consumer)
+     */
+    public static <V> SortedMap<Integer, GitHubResponse> getPages(GitHubClientExtended client,
+                                                                   PagedRequest<V> request,
+                                                                   Collection<Integer> pages)
+            throws IOException {
+        return getPages(client, request, pages, response -> {});
+    }
+
+    /**
+     * Gets the given pages of a request in parallel.
+     *
+     * @param client
+     * @param request the request of which to get pages
+     * @param pages the numbers of the pages to get
+     * @param onPage called with each response as it is received, possibly from several threads at once
+     * @return the responses, by page number
+     * @throws IOException if any of the pages could not be received, in which case the
+     *         requests that have not been made yet are cancelled
+     */
+    public static <V> SortedMap<Integer, GitHubResponse> getPages(GitHubClientExtended client,
+                                                                   PagedRequest<V> request,
+                                                                   Collection<Integer> pages,
+                                                                   Consumer<GitHubResponse> onPage)
+            throws IOException {
+        SortedMap<Integer, Future<GitHubResponse>> futures = new TreeMap<>();
+        for (int page : pages) {
+            futures.put(page, pool.submit(() -> {
+                GitHubResponse response = client.getIfNoneMatch(createPageRequest(request, page),
+                    Optional.empty()).getRight();
+                onPage.accept(response);
+                return response;
+            }));
+        }
+
+        SortedMap<Integer, GitHubResponse> responses = new TreeMap<>();
+        try {
+            for (Map.Entry<Integer, Future<GitHubResponse>> future : futures.entrySet()) {
+                responses.put(future.getKey(), future.getValue().get());
+            }
+        } catch (InterruptedException e) {
+            futures.values().forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            futures.values().forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+        return responses;
+    }
+
+    /**
+     * Returns the items in a response to a paged request.
+     */
+    @SuppressWarnings("unchecked")
+    public static <V> Collection<V> getItems(GitHubResponse response) {
+        return response.getBody() == null
+            ? new ArrayList<>()
+            : (Collection<V>) response.getBody();
+    }
+
+    /**
+     * Returns the number of the last page given in the Link header of a response,
+     * or -1 if there is none, as on the last page itself.
+     */
+    public static int getLastPage(GitHubResponse response) {
+        String uri = response.getLast();
+        if (uri == null) {
+            return -1;
+        }
+        try {
+            String page = UrlUtils.getParam(new URI(uri), PARAM_PAGE);
+            return page == null ? -1 : Integer.parseInt(page);
+        } catch (URISyntaxException | NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Creates a request for a single page of the given request.
+     */
+    public static <V> PagedRequest<V> createPageRequest(PagedRequest<V> request, int page) {
+        PagedRequest<V> pageRequest = new PagedRequest<>(page, request.getPageSize());
+        pageRequest.setUri(request.getUri());
+        pageRequest.setParams(request.getParams());
+        pageRequest.setType(request.getType());
+        pageRequest.setArrayType(request.getArrayType());
+        pageRequest.setResponseContentType(request.getResponseContentType());
+        return pageRequest;
+    }
+}
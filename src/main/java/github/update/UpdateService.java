@@ -3,21 +3,27 @@ package github.update;
 import static org.eclipse.egit.github.core.client.IGitHubConstants.CONTENT_TYPE_JSON;
 import static org.eclipse.egit.github.core.client.IGitHubConstants.SEGMENT_REPOS;
 import github.GitHubClientExtended;
+import github.PageFetcher;
 
 import java.io.IOException;
 import java.net.HttpURLConnection;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.eclipse.egit.github.core.IRepositoryIdProvider;
-import org.eclipse.egit.github.core.client.GitHubRequest;
-import org.eclipse.egit.github.core.client.NoSuchPageException;
-import org.eclipse.egit.github.core.client.PageIterator;
+import org.eclipse.egit.github.core.client.GitHubResponse;
 import org.eclipse.egit.github.core.client.PagedRequest;
 import org.eclipse.egit.github.core.service.GitHubService;
 
@@ -34,6 +40,9 @@ import util.Utility;
 public class UpdateService<T> extends GitHubService {
     private static final Logger logger = LogManager.getLogger(UpdateService.class.getName());
 
+    // Marks the ETag of the empty page after a full last page among the ETags of the pages
+    private static final String AFTER_LAST_PAGE = "+";
+
     private final GitHubClientExtended client;
     private final String apiSuffix;
     private final String lastETags;
@@ -94,27 +103,17 @@ public class UpdateService<T> extends GitHubService {
         logger.info(String.format("Updating %s with ETag %s", resourceDesc, lastETags));
         try {
             PagedRequest<T> request = createUpdatedRequest(repoId);
-            Optional<ImmutablePair<List<String>, HttpURLConnection>> etags = getPagedEtags(request, client);
-
-            if (!etags.isPresent()) {
-                logger.warn(String.format("%s: error getting updated items", getClass().getSimpleName()));
-
-                // Respond as if we succeeded and there were no updates.
-                // The assumption is that updates are cheap and we can do them as frequently as needed.
+            Optional<List<T>> changedItems = getChangedItems(resourceDesc, request);
+            if (changedItems.isPresent()) {
+                result = new ArrayList<>(changedItems.get());
+                logger.info(String.format("New ETag for %s: %s", resourceDesc, updatedETags));
             } else {
-                updatedETags = combineETags(etags.get().getLeft());
-                if (!updatedETags.isPresent() || updatedETags.get().equals(lastETags)){
-                    logger.info("Nothing to update");
-                } else {
-                    result = new ArrayList<>(getPagedItems(resourceDesc,
-                        new PageIterator<>(request, client)));
-                    logger.info(String.format("New ETag for %s: %s", resourceDesc, updatedETags));
-                }
-
-                updateCheckTime(etags.get().getRight());
+                logger.info("Nothing to update");
             }
-
         } catch (IOException e) {
+            // Respond as if we succeeded and there were no updates.
+            // The assumption is that updates are cheap and we can do them as frequently as needed.
+            logger.warn(String.format("%s: error getting updated items", getClass().getSimpleName()));
             logger.error(e.getLocalizedMessage(), e);
             return result;
         }
@@ -123,6 +122,126 @@ public class UpdateService<T> extends GitHubService {
         return result;
     }
 
+    /**
+     * Gets all pages of items in a single pass, sending the ETag each page had when last checked
+     * as If-None-Match, so that unchanged pages are answered with 304 Not Modified and no body.
+     * Once a page has changed, all items are needed, so the pages after it are requested
+     * unconditionally and the unchanged pages before it are requested again in full, in parallel
+     * where possible.
+     * Responses to conditional requests may leave out the links to other pages, so when the last
+     * known page is unchanged but was full, the page after it is requested in case items were added.
+     * That request is conditional too, on the ETag the empty page had when last requested.
+     * Sets the updated ETags and check time once all pages have been received.
+     *
+     * @return all items, or empty if no page has changed
+     * @throws IOException
+     */
+    private Optional<List<T>> getChangedItems(String resourceDesc, PagedRequest<T> request) throws IOException {
+        List<String> allLastETags = splitETags(lastETags);
+        // The ETag of the empty page after the last one, marked as such, follows those of the pages
+        // if the last page is full
+        boolean wasLastPageFull = allLastETags.size() > 1
+            && allLastETags.get(allLastETags.size() - 1).startsWith(AFTER_LAST_PAGE);
+        List<String> lastPageETags = wasLastPageFull
+            ? allLastETags.subList(0, allLastETags.size() - 1)
+            : allLastETags;
+        Optional<String> afterLastPageETag = wasLastPageFull
+            ? Optional.of(allLastETags.get(allLastETags.size() - 1).substring(AFTER_LAST_PAGE.length()))
+                .filter(eTag -> !eTag.isEmpty())
+            : Optional.empty();
+        boolean isLastPageFull = false;
+        List<String> pageETags = new ArrayList<>();
+        SortedMap<Integer, Collection<T>> pages = new TreeMap<>();
+        List<Integer> unchangedPages = new ArrayList<>();
+        HttpURLConnection firstConnection = null;
+
+        int page = PagedRequest.PAGE_FIRST;
+        boolean hasNext = true;
+        while (hasNext) {
+            int index = page - PagedRequest.PAGE_FIRST;
+            boolean isAfterLastPage = pages.isEmpty() && index > 0 && index == lastPageETags.size();
+            Optional<String> lastETag = pages.isEmpty() && index < lastPageETags.size()
+                ? Optional.of(lastPageETags.get(index))
+                : isAfterLastPage ? afterLastPageETag : Optional.empty();
+            ImmutablePair<HttpURLConnection, GitHubResponse> result = client.getIfNoneMatch(
+                PageFetcher.createPageRequest(request, page), lastETag.map(UpdateService::toIfNoneMatch));
+            HttpURLConnection connection = result.getLeft();
+            GitHubResponse response = result.getRight();
+            if (firstConnection == null) {
+                firstConnection = connection;
+            }
+
+            boolean isModified = connection.getResponseCode() != GitHubClientExtended.NO_UPDATE_RESPONSE_CODE;
+            if (isAfterLastPage && (!isModified || PageFetcher.getItems(response).isEmpty())) {
+                // Nothing was added after the last page, which stays marked as full
+                afterLastPageETag = getETag(response).map(Optional::of).orElse(afterLastPageETag);
+                break;
+            }
+            pageETags.add(getETag(response).orElse(lastETag.orElse("")));
+            if (isModified) {
+                addPage(resourceDesc, pages, page, response);
+
+                // All pages after a changed one are needed, so once their number is known they are requested at once
+                int lastPage = PageFetcher.getLastPage(response);
+                if (lastPage > page) {
+                    SortedMap<Integer, GitHubResponse> rest = PageFetcher.getPages(client, request,
+                        IntStream.rangeClosed(page + 1, lastPage).boxed().collect(Collectors.toList()));
+                    for (Map.Entry<Integer, GitHubResponse> restPage : rest.entrySet()) {
+                        pageETags.add(getETag(restPage.getValue()).orElse(""));
+                        addPage(resourceDesc, pages, restPage.getKey(), restPage.getValue());
+                    }
+                    page = lastPage;
+                    index = page - PagedRequest.PAGE_FIRST;
+                    response = rest.get(lastPage);
+                }
+                isLastPageFull = pages.get(page).size() >= request.getPageSize();
+                // The page after it is not known yet
+                afterLastPageETag = Optional.empty();
+            } else {
+                unchangedPages.add(page);
+                isLastPageFull = wasLastPageFull && index + 1 == lastPageETags.size();
+            }
+            // Responses to conditional requests may leave out the links to other pages
+            hasNext = response.getNext() != null
+                || !isModified && (index + 1 < lastPageETags.size() || isLastPageFull);
+            page++;
+        }
+        if (isLastPageFull) {
+            pageETags.add(AFTER_LAST_PAGE + afterLastPageETag.orElse(""));
+        }
+
+        if (pages.isEmpty() && pageETags.size() == allLastETags.size()) {
+            updatedETags = combineETags(pageETags);
+            updateCheckTime(firstConnection);
+            return Optional.empty();
+        }
+
+        SortedMap<Integer, GitHubResponse> refetched = PageFetcher.getPages(client, request, unchangedPages);
+        for (Map.Entry<Integer, GitHubResponse> unchangedPage : refetched.entrySet()) {
+            addPage(resourceDesc, pages, unchangedPage.getKey(), unchangedPage.getValue());
+        }
+
+        List<T> elements = new ArrayList<>();
+        pages.values().forEach(elements::addAll);
+        updatedETags = combineETags(pageETags);
+        updateCheckTime(firstConnection);
+        return Optional.of(elements);
+    }
+
+    private void addPage(String resourceDesc, SortedMap<Integer, Collection<T>> pages, int page,
+                         GitHubResponse response) {
+        Collection<T> items = PageFetcher.getItems(response);
+        pages.put(page, items);
+        logger.info(resourceDesc + " | page " + page + ": " + items.size() + " items");
+    }
+
+    /**
+     * Returns the ETag of a response, with its quotes stripped, or empty if it has none.
+     */
+    public static Optional<String> getETag(GitHubResponse response) {
+        return Optional.ofNullable(response.getHeader("ETag")).map(Utility::stripQuotes);
+    }
+
     /**
      * Combine ETags for multiple page into 1 string
      * @param etags
@@ -133,57 +252,28 @@ public class UpdateService<T> extends GitHubService {
     }
 
     /**
-     * Gets a list of ETags for all pages returned from an API request and
-     * also return the connection used to get the ETags so that their last check time
-     * can be recorded elsewhere
-     * @param request
-     * @param client
-     * @return a Optional list of ETags for all pages returned from an API request and
-     *         corresponding HTTP connection or an empty Optional if an error occurs
+     * Splits ETags combined by combineETags into the ETags of each page
+     * @param etags may be null
+     * @return list of ETags of each page, empty if there are none
      */
-    private Optional<ImmutablePair<List<String>, HttpURLConnection>> getPagedEtags(
-            GitHubRequest request, GitHubClientExtended client) {
-
-        PageHeaderIterator iter = new PageHeaderIterator(request, client, "ETag");
-        List<String> etags = new ArrayList<>();
-        HttpURLConnection connection = null;
-
-        while (iter.hasNext()) {
-            try {
-                etags.add(Utility.stripQuotes(iter.next()));
-                if (connection == null) {
-                    connection = iter.getLastConnection();
-                }
-            } catch (NoSuchPageException e) {
-                logger.error("No such page exception at " + iter.getRequest().generateUri());
-                return Optional.empty();
-            }
+    private static List<String> splitETags(String etags) {
+        if (etags == null || etags.isEmpty()) {
+            return new ArrayList<>();
         }
-
-        return Optional.of(new ImmutablePair<>(etags, connection));
+        return Arrays.asList(etags.split("#", -1));
     }
 
     /**
-     * A specialised version of GitHubService::getPage that does logging.
-     * @param iterator the paged request to iterate through
-     * @return a list of items
-     * @throws IOException
+     * Restores the quotes stripped from an ETag so that it can be sent back to GitHub.
+     * Weak ETags such as W/"abc" only have their closing quote stripped.
+     * @param etag
+     * @return the value of an If-None-Match header matching the ETag
      */
-    private List<T> getPagedItems(String resourceDesc, PageIterator<T> iterator) throws IOException {
-        List<T> elements = new ArrayList<>();
-        int length = 0;
-        int page = 0;
-        try {
-            while (iterator.hasNext()) {
-                elements.addAll(iterator.next());
-                int diff = elements.size() - length;
-                length = elements.size();
-                logger.info(resourceDesc + " | page " + (page++) + ": " + diff + " items");
-            }
-        } catch (NoSuchPageException pageException) {
-            throw pageException.getCause();
+    public static String toIfNoneMatch(String etag) {
+        if (etag.startsWith("W/\"")) {
+            return etag + "\"";
         }
-        return elements;
+        return "\"" + etag + "\"";
     }
 
     /**
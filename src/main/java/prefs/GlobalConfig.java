@@ -33,10 +33,45 @@ public class GlobalConfig {
     private Map<String, List<PanelInfo>> savedBoards = new LinkedHashMap<>();
     private Map<String, Map<Integer, LocalDateTime>> markedReadTimes = new HashMap<>();
     private Map<String, String> keyboardShortcuts = new HashMap<>();
+    private String storeFormat = "json"; // "json", "binary" or "mapped"
+    private int storeCompressionLevel = 0; // 0 for none, or 1 (fastest) to 9 (smallest)
+    private int metadataConnections = 4; // requests made at once when getting issue metadata
+    private int maxConnectionsPerHost = 10; // idle connections kept open for reuse
+    private boolean updateFromEventsFeed = false; // update repositories from their events feed
+    private int minRefreshInterval = 60; // seconds between refreshes of a busy repository
+    private int maxRefreshInterval = 600; // seconds between refreshes of an idle repository
 
     public GlobalConfig() {
     }
 
+    public String getStoreFormat() {
+        return storeFormat;
+    }
+
+    public int getStoreCompressionLevel() {
+        return storeCompressionLevel;
+    }
+
+    public int getMetadataConnections() {
+        return metadataConnections;
+    }
+
+    public int getMaxConnectionsPerHost() {
+        return maxConnectionsPerHost;
+    }
+
+    public boolean isUpdatingFromEventsFeed() {
+        return updateFromEventsFeed;
+    }
+
+    public int getMinRefreshInterval() {
+        return minRefreshInterval;
+    }
+
+    public int getMaxRefreshInterval() {
+        return maxRefreshInterval;
+    }
+
     public Map<String, String> getKeyboardShortcuts() {
         return new HashMap<>(keyboardShortcuts);
     }
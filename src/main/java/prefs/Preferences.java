@@ -149,6 +149,42 @@ public class Preferences {
         return global.getMarkedReadAt(repoId, issue);
     }
 
+    /**
+     * Local storage
+     */
+
+    public String getStoreFormat() {
+        return global.getStoreFormat();
+    }
+
+    public int getStoreCompressionLevel() {
+        return global.getStoreCompressionLevel();
+    }
+
+    /**
+     * Network
+     */
+
+    public int getMetadataConnections() {
+        return global.getMetadataConnections();
+    }
+
+    public int getMaxConnectionsPerHost() {
+        return global.getMaxConnectionsPerHost();
+    }
+
+    public boolean isUpdatingFromEventsFeed() {
+        return global.isUpdatingFromEventsFeed();
+    }
+
+    public int getMinRefreshInterval() {
+        return global.getMinRefreshInterval();
+    }
+
+    public int getMaxRefreshInterval() {
+        return global.getMaxRefreshInterval();
+    }
+
     public Map<String, String> getKeyboardShortcuts() {
         return global.getKeyboardShortcuts();
     }
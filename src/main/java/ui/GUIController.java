@@ -1,6 +1,7 @@
 package ui;
 
 import backend.interfaces.IModel;
+import backend.resource.ModelChanges;
 import backend.resource.TurboIssue;
 import filter.expression.FilterExpression;
 import filter.expression.Qualifier;
@@ -84,7 +85,7 @@ public class GUIController {
         HashMap<String, HashSet<Integer>> toUpdate = new HashMap<>();
 
         panelControl.getChildren().forEach(child -> {
-            if (child instanceof FilterPanel) {
+            if (child instanceof FilterPanel && isAffected((FilterPanel) child, updatedModel, e.changes)) {
                 processPanel((FilterPanel) child, updatedModel, allModelIssues, toUpdate, e.hasMetadata);
             }
         });
@@ -93,6 +94,52 @@ public class GUIController {
         dispatchMetadataRequests(toUpdate);
     }
 
+    private static boolean isAffected(FilterPanel panel, IModel updatedModel, Optional<ModelChanges> changes) {
+        return panel.getIssueList() == null
+            || isAffected(panel.getIssueList(), panel.getCurrentFilterExpression(), updatedModel, changes);
+    }
+
+    /**
+     * Determines whether a panel may look different after changes to the model of a repository:
+     * whether it shows any of the issues that changed, or any of them now satisfy its filter.
+     * A change to the labels, milestones or users of the repository may affect the look of any
+     * of its issues. A filter relative to the current time may change what it shows without
+     * any change, so such panels are always affected. Panels that are not affected need not
+     * be filtered again.
+     *
+     * @param shownIssues The issues the panel shows.
+     * @param panelExpression The filter of the panel.
+     * @param updatedModel The model after the changes.
+     * @param changes The changes, or empty if anything may have changed.
+     * @return Whether the panel has to be processed again.
+     */
+    public static boolean isAffected(List<TurboIssue> shownIssues, FilterExpression panelExpression,
+                                     IModel updatedModel, Optional<ModelChanges> changes) {
+        if (!changes.isPresent() || Qualifier.isTimeRelative(panelExpression)) {
+            return true;
+        }
+        String repoId = changes.get().repoId;
+        ModelChanges.Delta<TurboIssue> issues = changes.get().issues;
+
+        Predicate<TurboIssue> isShownAffected;
+        if (changes.get().affectsAllIssues()) {
+            isShownAffected = issue -> issue.getRepoId().equalsIgnoreCase(repoId);
+        } else {
+            Set<Integer> changedIds = new HashSet<>();
+            issues.changed.forEach(issue -> changedIds.add(issue.getId()));
+            issues.removed.forEach(issue -> changedIds.add(issue.getId()));
+            isShownAffected = issue -> issue.getRepoId().equalsIgnoreCase(repoId) && changedIds.contains(issue.getId());
+        }
+        if (shownIssues.stream().anyMatch(isShownAffected)) {
+            return true;
+        }
+
+        Predicate<TurboIssue> isNowShown = issue -> Qualifier.process(updatedModel, panelExpression, issue);
+        return changes.get().affectsAllIssues()
+            ? changes.get().updated.getIssues().stream().anyMatch(isNowShown)
+            : issues.added.stream().anyMatch(isNowShown) || issues.changed.stream().anyMatch(isNowShown);
+    }
+
     /**
      * Handler method for an applyFilterExpression call from an FilterPanel, which is in turn triggered by
      * the user pressing ENTER while the cursor is on the FilterPanel's filterTextField.
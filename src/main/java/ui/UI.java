@@ -61,7 +61,6 @@ public class UI extends Application implements EventDispatcher {
     private static final Logger logger = LogManager.getLogger(UI.class.getName());
     private static HWND mainWindowHandle;
 
-    private static final int REFRESH_PERIOD = 60;
     private static final int NOTIFICATION_PANE_VISIBLE_PERIOD = 5;
 
     // Application-level state
@@ -203,8 +202,9 @@ public class UI extends Application implements EventDispatcher {
         // we can pass them in the form of an array.
         logic = new Logic(uiManager, prefs, isTestMode(), isTestJSONEnabled());
         clearCacheIfNecessary();
-        refreshTimer = new TickingTimer("Refresh Timer", REFRESH_PERIOD,
-            status::updateTimeToRefresh, logic::refresh, TimeUnit.SECONDS);
+        // Ticks at the shortest refresh interval; each repository is refreshed at its own
+        refreshTimer = new TickingTimer("Refresh Timer", prefs.getMinRefreshInterval(),
+            status::updateTimeToRefresh, logic::refreshDue, TimeUnit.SECONDS);
         refreshTimer.start();
         notificationPaneTimer = new TickingTimer("Notification Pane Timer", NOTIFICATION_PANE_VISIBLE_PERIOD,
                 integer -> {}, () -> Platform.runLater(this::hideNotificationPane), TimeUnit.SECONDS);
@@ -1,11 +1,101 @@
 package util;
 
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingInputStream;
+import util.exceptions.ChecksumMismatchException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 public class IOUtilities {
 
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+    private static final int GZIP_MAGIC = 0x8b1f;
+
+    // A checksummed file starts with this header: the magic number, the length of the content
+    // that follows, and its CRC32. Files without it are read unchecked, unless the same header is
+    // kept in a separate checksum file.
+    private static final int CHECKSUM_MAGIC = 0x48544353;
+    private static final int CHECKSUM_HEADER_SIZE = 4 + 8 + 4;
+
+    /**
+     * Produces the content of a file by writing to the given stream.
+     * Implementations should not close the stream.
+     */
+    @FunctionalInterface
+    public interface StreamWriter {
+        void write(OutputStream out) throws IOException;
+    }
+
+    /**
+     * Consumes the content of a file from the given stream.
+     * Implementations should not close the stream.
+     */
+    @FunctionalInterface
+    public interface StreamReader<T> {
+        T read(InputStream in) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface ChannelWriter {
+        void write(FileChannel channel) throws IOException;
+    }
+
+    private static final class ChecksumHeader {
+        final long length;
+        final int checksum;
+
+        ChecksumHeader(long length, int checksum) {
+            this.length = length;
+            this.checksum = checksum;
+        }
+    }
+
+    /**
+     * GZIP streams release their native compressor only when closed, which would also close
+     * the stream they wrap. That stream belongs to the caller, so these release it on end.
+     */
+    private static final class CompressingStream extends GZIPOutputStream {
+        CompressingStream(OutputStream out, int level) throws IOException {
+            super(out, WRITE_BUFFER_SIZE);
+            def.setLevel(level);
+        }
+
+        void end() {
+            def.end();
+        }
+    }
+
+    private static final class DecompressingStream extends GZIPInputStream {
+        DecompressingStream(InputStream in) throws IOException {
+            super(in, READ_BUFFER_SIZE);
+        }
+
+        void end() {
+            inf.end();
+        }
+    }
+
     public static ByteArrayOutputStream inputStreamToByteArrayOutputStream(InputStream is) throws IOException {
         ByteArrayOutputStream buffer = new ByteArrayOutputStream();
         int nRead;
@@ -17,4 +107,275 @@ public class IOUtilities {
         return buffer;
     }
 
+    /**
+     * Streams the content of a file through a small buffer, so that it never has to be
+     * held in memory all at once.
+     */
+    public static <T> T readStreaming(Path source, StreamReader<T> reader) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(source), READ_BUFFER_SIZE)) {
+            return reader.read(in);
+        }
+    }
+
+    /**
+     * Streams content into a temporary file next to the target through a small buffer,
+     * then moves it over the target in one step. The target is thus either left as it was
+     * or fully replaced, never truncated, even if the program dies halfway through.
+     *
+     * @param target the file to be written
+     * @param writer produces the content of the file
+     * @throws IOException if the content could not be written or moved into place, in which
+     *         case the target is left untouched
+     */
+    public static void writeAtomically(Path target, StreamWriter writer) throws IOException {
+        replaceWith(target, channel -> writeBuffered(channel, writer));
+    }
+
+    /**
+     * Like writeAtomically, but precedes the content with its length and checksum, computed in
+     * the same pass as it is written. Reading the file through verifyingChecksum then detects
+     * any change to the content since.
+     */
+    public static void writeAtomicallyWithChecksum(Path target, StreamWriter writer) throws IOException {
+        replaceWith(target, channel -> {
+            channel.position(CHECKSUM_HEADER_SIZE);
+            CRC32 checksum = new CRC32();
+            writeBuffered(channel, out -> writer.write(new CheckedOutputStream(out, checksum)));
+
+            ByteBuffer header = checksumHeader(channel.position() - CHECKSUM_HEADER_SIZE, checksum);
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+        });
+    }
+
+    /**
+     * Like writeAtomicallyWithChecksum, but keeps the length and checksum in a separate file, so
+     * that the target holds nothing but the content, e.g. a valid JSON document. The checksum file
+     * is replaced just before the target; if the program dies in between, the target no longer
+     * matches it and is treated as corrupted when read through verifyingChecksum.
+     */
+    public static void writeAtomicallyWithChecksumFile(Path target, Path checksumFile, StreamWriter writer)
+            throws IOException {
+        replaceWith(target, channel -> {
+            CRC32 checksum = new CRC32();
+            writeBuffered(channel, out -> writer.write(new CheckedOutputStream(out, checksum)));
+
+            ByteBuffer header = checksumHeader(channel.position(), checksum);
+            writeAtomically(checksumFile, out -> out.write(header.array()));
+        });
+    }
+
+    private static ByteBuffer checksumHeader(long length, CRC32 checksum) {
+        ByteBuffer header = ByteBuffer.allocate(CHECKSUM_HEADER_SIZE)
+            .putInt(CHECKSUM_MAGIC)
+            .putLong(length)
+            .putInt((int) checksum.getValue());
+        header.flip();
+        return header;
+    }
+
+    private static void replaceWith(Path target, ChannelWriter writer) throws IOException {
+        Path directory = target.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(directory, target.getFileName().toString(), TEMP_FILE_SUFFIX);
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                writer.write(channel);
+                channel.force(true);
+            }
+            moveReplacing(temp, target);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static void writeBuffered(FileChannel channel, StreamWriter writer) throws IOException {
+        OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), WRITE_BUFFER_SIZE);
+        writer.write(out);
+        out.flush();
+    }
+
+    /**
+     * Verifies the content passed to the reader against the checksum it was written with, if
+     * it was written by writeAtomicallyWithChecksum, and passes it unchecked otherwise.
+     * The whole content is verified, even if the reader stops before the end of it.
+     * @throws ChecksumMismatchException if the content does not match its checksum, in which
+     *         case the result of the reader is discarded
+     */
+    public static <T> StreamReader<T> verifyingChecksum(StreamReader<T> reader) {
+        return in -> {
+            InputStream buffered = in.markSupported() ? in : new BufferedInputStream(in);
+            Optional<ChecksumHeader> header = readChecksumHeader(buffered);
+            if (!header.isPresent()) {
+                return reader.read(buffered);
+            }
+            return readVerified(buffered, header.get(), reader);
+        };
+    }
+
+    /**
+     * Like verifyingChecksum, but verifies the content against the checksum file written with it
+     * by writeAtomicallyWithChecksumFile. Content without a checksum file is verified against
+     * its own header as by verifyingChecksum, if it has one.
+     * @throws ChecksumMismatchException if the content does not match its checksum, or the
+     *         checksum file is not one
+     */
+    public static <T> StreamReader<T> verifyingChecksum(Path checksumFile, StreamReader<T> reader) {
+        return in -> {
+            Optional<ChecksumHeader> header = readChecksumFile(checksumFile);
+            if (!header.isPresent()) {
+                return verifyingChecksum(reader).read(in);
+            }
+            return readVerified(in, header.get(), reader);
+        };
+    }
+
+    private static <T> T readVerified(InputStream in, ChecksumHeader header, StreamReader<T> reader)
+            throws IOException {
+        CountingInputStream counting = new CountingInputStream(ByteStreams.limit(in, header.length));
+        CheckedInputStream checked = new CheckedInputStream(counting, new CRC32());
+        // Buffered so that marking and resetting the stream does not reach the checked stream,
+        // which would see the same bytes twice
+        T result = reader.read(new BufferedInputStream(checked, READ_BUFFER_SIZE));
+
+        byte[] rest = new byte[READ_BUFFER_SIZE];
+        while (checked.read(rest) != -1) {
+            // Only read to update the checksum
+        }
+        if (counting.getCount() != header.length) {
+            throw new ChecksumMismatchException("Content is " + counting.getCount()
+                + " bytes long instead of " + header.length);
+        }
+        if (in.read() != -1) {
+            throw new ChecksumMismatchException("Content is longer than " + header.length + " bytes");
+        }
+        if ((int) checked.getChecksum().getValue() != header.checksum) {
+            throw new ChecksumMismatchException("Content does not match its checksum");
+        }
+        return result;
+    }
+
+    /**
+     * Passes the content to the reader without verifying it, for readers that only need the
+     * start of it.
+     */
+    public static <T> StreamReader<T> skippingChecksum(StreamReader<T> reader) {
+        return in -> {
+            InputStream buffered = in.markSupported() ? in : new BufferedInputStream(in);
+            readChecksumHeader(buffered);
+            return reader.read(buffered);
+        };
+    }
+
+    /**
+     * Returns the content of a file that is wholly in memory, verified against the checksum
+     * it was written with if it was written by writeAtomicallyWithChecksum.
+     * @throws ChecksumMismatchException if the content does not match its checksum
+     */
+    public static ByteBuffer verifyingChecksum(ByteBuffer file) throws ChecksumMismatchException {
+        if (file.limit() < CHECKSUM_HEADER_SIZE || file.getInt(0) != CHECKSUM_MAGIC) {
+            return file;
+        }
+        long length = file.getLong(4);
+        if (length != file.limit() - CHECKSUM_HEADER_SIZE) {
+            throw new ChecksumMismatchException("Content is " + (file.limit() - CHECKSUM_HEADER_SIZE)
+                + " bytes long instead of " + length);
+        }
+        ByteBuffer content = file.duplicate();
+        content.position(CHECKSUM_HEADER_SIZE);
+        content = content.slice();
+
+        CRC32 checksum = new CRC32();
+        checksum.update(content.duplicate());
+        if ((int) checksum.getValue() != file.getInt(12)) {
+            throw new ChecksumMismatchException("Content does not match its checksum");
+        }
+        return content;
+    }
+
+    private static Optional<ChecksumHeader> readChecksumFile(Path checksumFile) throws IOException {
+        if (!Files.exists(checksumFile)) {
+            return Optional.empty();
+        }
+        ByteBuffer header = ByteBuffer.wrap(Files.readAllBytes(checksumFile));
+        if (header.limit() != CHECKSUM_HEADER_SIZE || header.getInt(0) != CHECKSUM_MAGIC) {
+            throw new ChecksumMismatchException(checksumFile + " is not a checksum file");
+        }
+        return Optional.of(new ChecksumHeader(header.getLong(4), header.getInt(12)));
+    }
+
+    /**
+     * Consumes the checksum header at the start of the stream if there is one, and leaves the
+     * stream as it was otherwise.
+     */
+    private static Optional<ChecksumHeader> readChecksumHeader(InputStream in) throws IOException {
+        in.mark(CHECKSUM_HEADER_SIZE);
+        byte[] bytes = new byte[CHECKSUM_HEADER_SIZE];
+        int read = ByteStreams.read(in, bytes, 0, CHECKSUM_HEADER_SIZE);
+        ByteBuffer header = ByteBuffer.wrap(bytes);
+        if (read < CHECKSUM_HEADER_SIZE || header.getInt(0) != CHECKSUM_MAGIC) {
+            in.reset();
+            return Optional.empty();
+        }
+        return Optional.of(new ChecksumHeader(header.getLong(4), header.getInt(12)));
+    }
+
+    /**
+     * Compresses the content produced by the writer with GZIP.
+     * @param level the compression level, from 1 (fastest) to 9 (smallest)
+     */
+    public static StreamWriter gzipping(StreamWriter writer, int level) {
+        return out -> {
+            CompressingStream gzip = new CompressingStream(out, level);
+            try {
+                writer.write(gzip);
+                gzip.finish();
+            } finally {
+                gzip.end();
+            }
+        };
+    }
+
+    /**
+     * Decompresses the content passed to the reader if it is in GZIP format, and passes it
+     * unchanged otherwise.
+     */
+    public static <T> StreamReader<T> gunzippingIfCompressed(StreamReader<T> reader) {
+        return in -> {
+            InputStream buffered = in.markSupported() ? in : new BufferedInputStream(in);
+            if (isGzipped(buffered)) {
+                DecompressingStream gunzip = new DecompressingStream(buffered);
+                try {
+                    return reader.read(new BufferedInputStream(gunzip, READ_BUFFER_SIZE));
+                } finally {
+                    gunzip.end();
+                }
+            }
+            return reader.read(buffered);
+        };
+    }
+
+    private static boolean isGzipped(InputStream in) throws IOException {
+        in.mark(2);
+        int first = in.read();
+        int second = in.read();
+        in.reset();
+        return first != -1 && second != -1 && (first | (second << 8)) == GZIP_MAGIC;
+    }
+
+    /**
+     * Checks the first bytes of a file for the GZIP header.
+     */
+    public static boolean isGzipped(byte first, byte second) {
+        return ((first & 0xFF) | ((second & 0xFF) << 8)) == GZIP_MAGIC;
+    }
+
+    private static void moveReplacing(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
 }
@@ -0,0 +1,74 @@
+package util;
+
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs tasks with the same key one at a time, in the order they were submitted,
+ * while tasks with different keys run in parallel on a bounded number of threads.
+ *
+ * Keys waiting for a thread are served in turn, one task at a time, so that a key
+ * with many queued tasks does not hold up the others.
+ */
+public class KeyedExecutor {
+
+    private static final Logger logger = HTLog.get(KeyedExecutor.class);
+
+    private static final long IDLE_THREAD_TIMEOUT_SECONDS = 60;
+
+    private final ThreadPoolExecutor pool;
+
+    // Tasks waiting or running for each key; the head of each queue is the one running or
+    // scheduled to run. Keys without tasks are removed. Guarded by this.
+    private final Map<String, Queue<Runnable>> queues = new HashMap<>();
+
+    /**
+     * @param maxThreads the maximum number of tasks that can run at once
+     */
+    public KeyedExecutor(int maxThreads) {
+        pool = new ThreadPoolExecutor(maxThreads, maxThreads,
+            IDLE_THREAD_TIMEOUT_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+        pool.allowCoreThreadTimeOut(true);
+    }
+
+    public synchronized void execute(String key, Runnable task) {
+        Queue<Runnable> queue = queues.get(key);
+        if (queue == null) {
+            queue = new ArrayDeque<>();
+            queues.put(key, queue);
+            queue.add(task);
+            pool.execute(() -> runNext(key));
+        } else {
+            queue.add(task);
+        }
+    }
+
+    private void runNext(String key) {
+        Runnable task;
+        synchronized (this) {
+            task = queues.get(key).peek();
+        }
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            HTLog.error(logger, e);
+        } finally {
+            synchronized (this) {
+                Queue<Runnable> queue = queues.get(key);
+                queue.remove();
+                if (queue.isEmpty()) {
+                    queues.remove(key);
+                } else {
+                    pool.execute(() -> runNext(key));
+                }
+            }
+        }
+    }
+}
@@ -6,7 +6,7 @@ import java.awt.Rectangle;
 import java.awt.Toolkit;
 import java.io.File;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -34,8 +34,6 @@ import org.eclipse.egit.github.core.RepositoryId;
 import ui.UI;
 import util.events.ShowErrorDialogEvent;
 
-import com.google.gson.GsonBuilder;
-import com.google.gson.JsonParser;
 
 public class Utility {
 
@@ -65,23 +63,47 @@ public class Utility {
     }
 
     /**
-     * Returns true on JSON corruption.
-     * TODO remove JSON-specific parts
+     * Streams a file into the given reader instead of loading it into memory as a String.
+     * @param fileName
+     * @param reader consumes the content of the file
+     * @return the result of the reader, or empty if the file could not be read
+     */
+    public static <T> Optional<T> readFile(String fileName, IOUtilities.StreamReader<T> reader) {
+        boolean validPath = !(fileName == null || fileName.isEmpty());
+        if (validPath) {
+            try {
+                return Optional.ofNullable(IOUtilities.readStreaming(Paths.get(fileName), reader));
+            } catch (IOException e) {
+                logger.error(e.getLocalizedMessage(), e);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Returns true on failure to write the file.
      * @param fileName
      * @param content
-     * @param issueCount
      * @return
      */
-    public static boolean writeFile(String fileName, String content, int issueCount) {
+    public static boolean writeFile(String fileName, String content) {
+        return writeFile(fileName,
+                out -> out.write((content + System.lineSeparator()).getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Streams content into a file without holding all of it in memory. The file is
+     * replaced atomically, so a failed write leaves the previous version intact.
+     * Returns true on failure to write the file.
+     * @param fileName
+     * @param writer produces the content of the file
+     * @return
+     */
+    public static boolean writeFile(String fileName, IOUtilities.StreamWriter writer) {
         boolean validPath = !(fileName == null || fileName.isEmpty());
         if (validPath) {
             try {
-                PrintWriter writer = new PrintWriter(fileName, "UTF-8");
-                writer.println(content);
-                writer.close();
-
-                long sizeAfterWrite = Files.size(Paths.get(fileName));
-                return processFileGrowth(sizeAfterWrite, issueCount, fileName);
+                IOUtilities.writeAtomically(Paths.get(fileName), writer);
             } catch (IOException e) {
                 logger.error(e.getLocalizedMessage(), e);
                 return true;
@@ -109,24 +131,25 @@ public class Utility {
         return false;
     }
 
-    private static boolean processFileGrowth(long sizeAfterWrite, int issueCount, String fileName) {
-        // The average issue is about 0.75KB in size. If the total filesize is more than (2 * issueCount KB),
-        // we consider the json to have exploded as the file is unusually large.
-        if ((issueCount > 0) &&
-                (sizeAfterWrite > ((long) issueCount * 2000))) {
-            UI.events.triggerEvent(new ShowErrorDialogEvent("Possible data corruption detected",
-                    fileName + " is unusually large.\n\n"
-                            + "Now proceeding to delete the file and redownload the repository to prevent "
-                            + "further corruption.\n\n"
-                            + "A copy of the corrupted file is saved as " + fileName + "-err. "
-                            + "The error log of the program has been stored in the file hubturbo-err-log.log."
-                    )
-            );
-            parseAndDeleteFile(fileName);
-            copyLog();
-            return true;
+    /**
+     * Notifies the user that a file was found to be corrupted, and moves it aside
+     * along with a copy of the error log.
+     * @param fileName
+     */
+    public static void reportCorruptedFile(String fileName) {
+        UI.events.triggerEvent(new ShowErrorDialogEvent("Data corruption detected",
+                fileName + " does not match its checksum.\n\n"
+                        + "Now proceeding to redownload the repository.\n\n"
+                        + "A copy of the corrupted file is saved as " + fileName + "-err. "
+                        + "The error log of the program has been stored in the file hubturbo-err-log.log."
+                )
+        );
+        try {
+            Files.move(Paths.get(fileName), Paths.get(fileName + "-err"), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            logger.error(e.getLocalizedMessage(), e);
         }
-        return false;
+        copyLog();
     }
 
     public static void copyLog() {
@@ -139,24 +162,6 @@ public class Utility {
         }
     }
 
-    public static void parseAndDeleteFile(String fileName) {
-        try {
-            Path corruptedFile = Paths.get(fileName);
-            if (Files.exists(corruptedFile)) {
-                String corruptedFileData = readFile(fileName).get();
-                PrintWriter writer = new PrintWriter(fileName + "-err", "UTF-8");
-                writer.println(new GsonBuilder().setPrettyPrinting().create().toJson(
-                        new JsonParser().parse(corruptedFileData)
-                ));
-                writer.close();
-
-                Files.delete(corruptedFile);
-            }
-        } catch (IOException e) {
-            logger.error(e.getLocalizedMessage(), e);
-        }
-    }
-
     public static String stripQuotes(String s) {
         return s.replaceAll("^\"|\"$", "");
     }
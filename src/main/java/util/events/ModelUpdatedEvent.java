@@ -1,14 +1,25 @@
 package util.events;
 
 import backend.interfaces.IModel;
+import backend.resource.ModelChanges;
 import backend.resource.MultiModel;
 
+import java.util.Optional;
+
 public class ModelUpdatedEvent extends Event {
     public final IModel model;
     public final boolean hasMetadata;
 
+    // What changed in the model of a single repository, or empty if anything may have
+    public final Optional<ModelChanges> changes;
+
     public ModelUpdatedEvent(MultiModel models, boolean hasMetadata) {
+        this(models, hasMetadata, Optional.empty());
+    }
+
+    public ModelUpdatedEvent(MultiModel models, boolean hasMetadata, Optional<ModelChanges> changes) {
         this.model = models;
         this.hasMetadata = hasMetadata;
+        this.changes = changes;
     }
 }
@@ -0,0 +1,15 @@
+package util.exceptions;
+
+import java.io.IOException;
+
+/**
+ * Thrown when the content of a file does not match the checksum it was written with.
+ */
+public class ChecksumMismatchException extends IOException {
+
+    private static final long serialVersionUID = 2618803411940672105L;
+
+    public ChecksumMismatchException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,30 @@
+package util.exceptions;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Thrown when the metadata of some issues was not downloaded because the rate limit was nearly
+ * used up. The metadata of the other issues was passed on as it arrived.
+ */
+public class IncompleteMetadataException extends IOException {
+
+    private static final long serialVersionUID = -3402118437268145563L;
+
+    private final List<Integer> skippedIssues;
+
+    public IncompleteMetadataException(String repoId, List<Integer> skippedIssues) {
+        super("Rate limit nearly reached, did not get metadata for " + skippedIssues.size()
+            + " issues of " + repoId);
+        this.skippedIssues = Collections.unmodifiableList(new ArrayList<>(skippedIssues));
+    }
+
+    /**
+     * @return the ids of the issues whose metadata was not downloaded, to be requested again later
+     */
+    public List<Integer> getSkippedIssues() {
+        return skippedIssues;
+    }
+}
@@ -51,7 +51,12 @@ public class UITest extends GuiTest {
                         .filter(Files::isRegularFile)
                         .filter(p ->
                                 getFileExtension(String.valueOf(p.getFileName())).equalsIgnoreCase("json") ||
-                                getFileExtension(String.valueOf(p.getFileName())).equalsIgnoreCase("json-err")
+                                getFileExtension(String.valueOf(p.getFileName())).equalsIgnoreCase("bin") ||
+                                getFileExtension(String.valueOf(p.getFileName())).equalsIgnoreCase("journal") ||
+                                getFileExtension(String.valueOf(p.getFileName())).equalsIgnoreCase("metadata") ||
+                                getFileExtension(String.valueOf(p.getFileName())).equalsIgnoreCase("metadata-err") ||
+                                getFileExtension(String.valueOf(p.getFileName())).equalsIgnoreCase("json-err") ||
+                                getFileExtension(String.valueOf(p.getFileName())).equalsIgnoreCase("bin-err")
                         )
                         .forEach(p -> new File(p.toAbsolutePath().toString()).delete());
             }
@@ -0,0 +1,149 @@
+package tests;
+
+import backend.UpdateSignature;
+import backend.binary.BinaryStore;
+import backend.interfaces.RepoStore;
+import backend.json.JSONStore;
+import backend.resource.Model;
+import backend.resource.TurboIssue;
+import backend.resource.serialization.SerializableModel;
+import backend.stub.DummyRepo;
+import guitests.UITest;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import ui.UI;
+import util.Utility;
+import util.events.EventDispatcherStub;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BinaryStoreTests {
+
+    private static final String REPO = "testrepo/testrepo";
+
+    @BeforeClass
+    public static void setup() {
+        UI.events = new EventDispatcherStub();
+    }
+
+    @Before
+    public void enableTestDirectory() {
+        RepoStore.enableTestDirectory();
+    }
+
+    private static Model createModel() {
+        DummyRepo dummy = new DummyRepo();
+        List<TurboIssue> issues = dummy.getIssues(REPO);
+        issues.get(0).setAssignee("User 1");
+        issues.get(0).setMilestone(1);
+        return new Model(REPO, issues, dummy.getLabels(REPO), dummy.getMilestones(REPO),
+            dummy.getCollaborators(REPO),
+            new UpdateSignature("issues", "labels", "milestones", null, new Date()));
+    }
+
+    @Test
+    public void testSaveAndLoadRoundTrip() throws InterruptedException, ExecutionException {
+        Model model = createModel();
+        // Strings are not limited to 64KB as with DataOutputStream.writeUTF
+        model.getIssues().get(1).setDescription(StringUtils.repeat("longer than 64KB ", 5000));
+
+        BinaryStore binaryStore = new BinaryStore();
+        assertFalse(binaryStore.saveRepository(REPO, new SerializableModel(model)).get());
+
+        assertEquals(model, binaryStore.loadRepository(REPO).get());
+        assertTrue(binaryStore.getStoredRepos().contains(REPO));
+    }
+
+    @Test
+    public void testMappedLoad() throws InterruptedException, ExecutionException {
+        Model model = createModel();
+
+        BinaryStore mappedStore = new BinaryStore(true);
+        mappedStore.saveRepository(REPO, new SerializableModel(model)).get();
+        Model loaded = mappedStore.loadRepository(REPO).get();
+        assertEquals(model, loaded);
+
+        // Descriptions are still read from the old mapping after the stored file is replaced
+        Model changed = createModel();
+        changed.getIssues().get(0).setDescription("changed");
+        mappedStore.saveRepository(REPO, new SerializableModel(changed)).get();
+        assertEquals(model.getIssues().get(0).getDescription(), loaded.getIssues().get(0).getDescription());
+        assertEquals(model, loaded);
+
+        assertEquals("changed", mappedStore.loadRepository(REPO).get().getIssues().get(0).getDescription());
+    }
+
+    @Test
+    public void testCompressedLoad() throws InterruptedException, ExecutionException {
+        Model model = createModel();
+
+        new BinaryStore(false, 9).saveRepository(REPO, new SerializableModel(model)).get();
+        assertEquals(model, new BinaryStore().loadRepository(REPO).get());
+        assertTrue(new BinaryStore().getStoredRepos().contains(REPO));
+
+        // Mapped mode reads compressed files without mapping them
+        assertEquals(model, new BinaryStore(true).loadRepository(REPO).get());
+    }
+
+    @Test
+    public void testMigrationFromJSON() throws InterruptedException, ExecutionException {
+        Model model = createModel();
+        new JSONStore().saveRepository(REPO, new SerializableModel(model)).get();
+
+        BinaryStore binaryStore = new BinaryStore();
+        assertTrue(binaryStore.getStoredRepos().contains(REPO));
+        assertEquals(model, binaryStore.loadRepository(REPO).get());
+
+        assertTrue(Files.exists(Paths.get("store/test/testrepo-testrepo.bin")));
+        assertFalse(Files.exists(Paths.get("store/test/testrepo-testrepo.json")));
+        assertEquals(model, new BinaryStore().loadRepository(REPO).get());
+    }
+
+    @Test(expected = ExecutionException.class)
+    public void testCorruptedBinary() throws InterruptedException, ExecutionException {
+        Utility.writeFile(RepoStore.getRepoPath(REPO, BinaryStore.EXTENSION).get(), "abcde");
+        new BinaryStore().loadRepository(REPO).get();
+    }
+
+    @Test
+    public void testChecksumMismatch() throws InterruptedException, IOException {
+        for (boolean isMapped : new boolean[]{false, true}) {
+            Model model = createModel();
+            model.getIssues().get(0).setDescription("original");
+            BinaryStore binaryStore = new BinaryStore(isMapped);
+            binaryStore.saveRepository(REPO, new SerializableModel(model)).join();
+
+            Path path = Paths.get(RepoStore.getRepoPath(REPO, BinaryStore.EXTENSION).get());
+            String content = new String(Files.readAllBytes(path), StandardCharsets.ISO_8859_1);
+            Files.write(path, content.replace("original", "originaL").getBytes(StandardCharsets.ISO_8859_1));
+
+            try {
+                binaryStore.loadRepository(REPO).get();
+                fail("Corrupted file loaded");
+            } catch (ExecutionException e) {
+                assertTrue(Files.exists(Paths.get(path + "-err")));
+            }
+            UITest.clearTestFolder();
+        }
+    }
+
+    @After
+    public void cleanup() {
+        UITest.clearTestFolder();
+    }
+}
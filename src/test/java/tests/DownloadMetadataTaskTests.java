@@ -0,0 +1,240 @@
+package tests;
+
+import backend.IssueMetadata;
+import backend.MetadataCache;
+import backend.github.DownloadMetadataTask;
+import backend.interfaces.RepoStore;
+import backend.stub.DummyRepo;
+import backend.stub.DummySource;
+import github.TurboIssueEvent;
+import guitests.UITest;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.eclipse.egit.github.core.Comment;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import util.exceptions.IncompleteMetadataException;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class DownloadMetadataTaskTests {
+
+    private static final String REPO = "dummy/dummy";
+    private static final LocalDateTime UPDATED_AT = LocalDateTime.of(2015, 1, 1, 0, 0);
+
+    /**
+     * Records the requests made at once, and counts down the rate limit with each request.
+     * Each issue has a single comment, which is sent with the ETag "comments" unless it was given.
+     */
+    private static class CountingRepo extends DummyRepo {
+
+        private final AtomicInteger requests = new AtomicInteger();
+        private final AtomicInteger running = new AtomicInteger();
+        private final AtomicInteger maxRunning = new AtomicInteger();
+        private final AtomicInteger remainingRequests;
+
+        CountingRepo(int remainingRequests) {
+            this.remainingRequests = new AtomicInteger(remainingRequests);
+        }
+
+        private void request() {
+            requests.incrementAndGet();
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            remainingRequests.decrementAndGet();
+            running.decrementAndGet();
+        }
+
+        @Override
+        public ImmutablePair<List<TurboIssueEvent>, String> getUpdatedEvents(String repoId, int issueId,
+                                                                             String eTag) {
+            request();
+            return new ImmutablePair<>(new ArrayList<>(), null);
+        }
+
+        @Override
+        public ImmutablePair<List<Comment>, String> getUpdatedComments(String repoId, int issueId,
+                                                                       String eTag) {
+            request();
+            if ("comments".equals(eTag)) {
+                return new ImmutablePair<>(new ArrayList<>(), eTag);
+            }
+            Comment comment = new Comment();
+            comment.setBody("Comment on #" + issueId);
+            comment.setCreatedAt(new Date(0));
+            return new ImmutablePair<>(new ArrayList<>(Collections.singletonList(comment)), "comments");
+        }
+
+        @Override
+        public int getRemainingRequests() {
+            return remainingRequests.get();
+        }
+    }
+
+    @Before
+    public void enableTestDirectory() {
+        RepoStore.enableTestDirectory();
+    }
+
+    @After
+    public void cleanup() {
+        UITest.clearTestFolder();
+    }
+
+    private static Map<Integer, LocalDateTime> issues(int count, LocalDateTime updatedAt) {
+        Map<Integer, LocalDateTime> issues = new LinkedHashMap<>();
+        for (int i = 1; i <= count; i++) {
+            issues.put(i, updatedAt);
+        }
+        return issues;
+    }
+
+    private static Map<Integer, IssueMetadata> download(CountingRepo repo, MetadataCache cache,
+                                                        Map<Integer, LocalDateTime> issues, int maxConnections,
+                                                        Consumer<Map<Integer, IssueMetadata>> onChunk)
+            throws ExecutionException, InterruptedException {
+        DummySource source = new DummySource();
+        return source.addTask(new DownloadMetadataTask(source, repo, REPO, issues, cache, maxConnections,
+            onChunk)).response.get();
+    }
+
+    @Test
+    public void testMetadataPublishedInChunks() throws ExecutionException, InterruptedException {
+        CountingRepo repo = new CountingRepo(5000);
+        List<Map<Integer, IssueMetadata>> chunks = Collections.synchronizedList(new ArrayList<>());
+
+        Map<Integer, IssueMetadata> result = download(repo, new MetadataCache(), issues(50, UPDATED_AT), 4,
+            chunks::add);
+
+        assertEquals(50, result.size());
+        assertEquals(3, chunks.size());
+        Map<Integer, IssueMetadata> published = new HashMap<>();
+        chunks.forEach(published::putAll);
+        assertEquals(result.keySet(), published.keySet());
+    }
+
+    @Test
+    public void testConnectionLimit() throws ExecutionException, InterruptedException {
+        CountingRepo repo = new CountingRepo(5000);
+
+        download(repo, new MetadataCache(), issues(30, UPDATED_AT), 4, chunk -> {});
+
+        assertTrue(repo.maxRunning.get() <= 4);
+        // The events and comments of an issue are requested at once
+        assertTrue(repo.maxRunning.get() >= 2);
+    }
+
+    @Test
+    public void testSingleConnection() throws ExecutionException, InterruptedException {
+        CountingRepo repo = new CountingRepo(5000);
+
+        Map<Integer, IssueMetadata> result = download(repo, new MetadataCache(), issues(10, UPDATED_AT), 1,
+            chunk -> {});
+
+        assertEquals(10, result.size());
+        // The events and comments of an issue are requested one after the other
+        assertEquals(1, repo.maxRunning.get());
+    }
+
+    @Test
+    public void testStopsNearRateLimit() throws InterruptedException {
+        // Enough for 10 issues before the reserve is reached
+        CountingRepo repo = new CountingRepo(DownloadMetadataTask.RATE_LIMIT_RESERVE + 21);
+        Map<Integer, IssueMetadata> published = Collections.synchronizedMap(new HashMap<>());
+
+        try {
+            download(repo, new MetadataCache(), issues(30, UPDATED_AT), 1, published::putAll);
+            fail("Issues left out without notice");
+        } catch (ExecutionException e) {
+            // The issues left out are reported, and the others passed on
+            assertTrue(e.getCause() instanceof IncompleteMetadataException);
+            assertEquals(IntStream.rangeClosed(11, 30).boxed().collect(Collectors.toList()),
+                ((IncompleteMetadataException) e.getCause()).getSkippedIssues());
+        }
+        assertEquals(10, published.size());
+        assertTrue(repo.getRemainingRequests() >= DownloadMetadataTask.RATE_LIMIT_RESERVE);
+    }
+
+    @Test
+    public void testIssuesNotUpdatedAreNotRequested() throws ExecutionException, InterruptedException {
+        CountingRepo repo = new CountingRepo(5000);
+        MetadataCache cache = new MetadataCache();
+        download(repo, cache, issues(10, UPDATED_AT), 4, chunk -> {});
+        assertEquals(20, repo.requests.get());
+
+        List<Map<Integer, IssueMetadata>> chunks = Collections.synchronizedList(new ArrayList<>());
+        Map<Integer, IssueMetadata> result = download(repo, cache, issues(10, UPDATED_AT), 4, chunks::add);
+
+        assertEquals(20, repo.requests.get());
+        assertEquals(10, result.size());
+        assertEquals("Comment on #3", result.get(3).getComments().get(0).getBody());
+        assertEquals(1, chunks.size());
+    }
+
+    @Test
+    public void testUpdatedIssuesRevalidated() throws ExecutionException, InterruptedException {
+        CountingRepo repo = new CountingRepo(5000);
+        MetadataCache cache = new MetadataCache();
+        download(repo, cache, issues(10, UPDATED_AT), 4, chunk -> {});
+
+        // The comments are not sent again, as they still have the cached ETag
+        Map<Integer, IssueMetadata> result = download(repo, cache, issues(10, UPDATED_AT.plusDays(1)), 4,
+            chunk -> {});
+
+        assertEquals(40, repo.requests.get());
+        assertEquals(10, result.size());
+        assertEquals("Comment on #3", result.get(3).getComments().get(0).getBody());
+    }
+
+    @Test
+    public void testCacheKeptInStore() throws ExecutionException, InterruptedException {
+        CountingRepo repo = new CountingRepo(5000);
+        download(repo, new MetadataCache(), issues(10, UPDATED_AT), 4, chunk -> {});
+
+        // As after restarting
+        Map<Integer, IssueMetadata> result = download(repo, new MetadataCache(), issues(10, UPDATED_AT), 4,
+            chunk -> {});
+
+        assertEquals(20, repo.requests.get());
+        assertEquals(10, result.size());
+        Comment comment = result.get(3).getComments().get(0);
+        assertEquals("Comment on #3", comment.getBody());
+        assertEquals(new Date(0), comment.getCreatedAt());
+    }
+
+    @Test
+    public void testCacheRemoved() throws ExecutionException, InterruptedException {
+        CountingRepo repo = new CountingRepo(5000);
+        MetadataCache cache = new MetadataCache();
+        download(repo, cache, issues(10, UPDATED_AT), 4, chunk -> {});
+        assertTrue(Files.exists(Paths.get(RepoStore.getRepoPath(REPO, MetadataCache.EXTENSION).get())));
+
+        assertFalse(cache.remove(REPO));
+
+        assertFalse(Files.exists(Paths.get(RepoStore.getRepoPath(REPO, MetadataCache.EXTENSION).get())));
+        assertFalse(cache.get(REPO, 3).isPresent());
+    }
+}
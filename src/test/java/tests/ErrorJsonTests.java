@@ -1,6 +1,11 @@
 package tests;
 
 import backend.interfaces.RepoStore;
+import backend.json.JSONStore;
+import backend.resource.Model;
+import backend.resource.TurboIssue;
+import backend.resource.serialization.SerializableModel;
+import com.google.gson.Gson;
 import guitests.UITest;
 import org.apache.commons.lang3.StringUtils;
 import org.junit.After;
@@ -12,14 +17,25 @@ import util.Utility;
 import util.events.EventDispatcherStub;
 import util.events.ShowErrorDialogEventHandler;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.concurrent.ExecutionException;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class ErrorJsonTests {
 
+    private static final String REPO = "dummy1/dummy1";
+    private static final Path JSON_FILE = Paths.get("store/test/dummy1-dummy1.json");
+
     private int eventCount = 0;
 
     @BeforeClass
@@ -30,19 +46,56 @@ public class ErrorJsonTests {
     @Before
     public void enableTestDirectory() {
         RepoStore.enableTestDirectory();
+        UI.events.registerEvent((ShowErrorDialogEventHandler) e -> eventCount++);
+    }
+
+    private static Model createModel(String description) {
+        TurboIssue issue = new TurboIssue(REPO, 1, "Issue 1");
+        issue.setDescription(description);
+        return new Model(REPO, new ArrayList<>(Collections.singletonList(issue)),
+                new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
     }
 
     @Test
-    public void testJsonExplosionDetection() throws ExecutionException, InterruptedException {
-        // Expect 0KB file is issueCount is 0. A non-empty file will fail this check.
-        UI.events.registerEvent((ShowErrorDialogEventHandler) e -> eventCount++);
-        String largeDummy2Kb = StringUtils.leftPad("foobar", 2100, '*');
-        boolean corruptedJson = Utility.writeFile("store/test/dummy1-dummy1.json", largeDummy2Kb, 1);
-        assertEquals(true, corruptedJson);
-        assertEquals(1, eventCount);
+    public void testChecksumMismatchDetection() throws InterruptedException, IOException {
+        JSONStore jsonStore = new JSONStore();
+        jsonStore.saveRepository(REPO, new SerializableModel(createModel("original"))).join();
+
+        // Still valid JSON, so only the checksum can tell that it changed
+        String content = new String(Files.readAllBytes(JSON_FILE), StandardCharsets.ISO_8859_1);
+        Files.write(JSON_FILE, content.replace("original", "originaL").getBytes(StandardCharsets.ISO_8859_1));
+
+        try {
+            jsonStore.loadRepository(REPO).get();
+            fail("Corrupted file loaded");
+        } catch (ExecutionException e) {
+            assertEquals(1, eventCount);
+        }
+
+        // Then, we check that the corrupted file was moved aside.
+        assertFalse(Files.exists(JSON_FILE));
+        assertTrue(Files.exists(Paths.get("store/test/dummy1-dummy1.json-err")));
+    }
+
+    @Test
+    public void testLargeFileNotFlagged() throws InterruptedException, ExecutionException {
+        // Much larger than the average issue, which used to be taken as a sign of corruption
+        Model model = createModel(StringUtils.leftPad("foobar", 2100, '*'));
+
+        JSONStore jsonStore = new JSONStore();
+        assertFalse(jsonStore.saveRepository(REPO, new SerializableModel(model)).get());
+        assertEquals(model, jsonStore.loadRepository(REPO).get());
+        assertEquals(0, eventCount);
+    }
+
+    @Test
+    public void testFileWithoutChecksumLoads() throws InterruptedException, ExecutionException {
+        // As written before store files had checksums
+        Model model = createModel("original");
+        Utility.writeFile(JSON_FILE.toString(), new Gson().toJson(new SerializableModel(model)));
 
-        // Then, we check that the json-err file exists.
-        assertEquals(true, Files.exists(Paths.get("store/test/dummy1-dummy1.json-err")));
+        assertEquals(model, new JSONStore().loadRepository(REPO).get());
+        assertEquals(0, eventCount);
     }
 
     @After
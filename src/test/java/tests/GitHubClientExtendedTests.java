@@ -0,0 +1,173 @@
+package tests;
+
+import com.google.gson.reflect.TypeToken;
+import github.GitHubClientExtended;
+import github.PageFetcher;
+import org.eclipse.egit.github.core.Issue;
+import org.eclipse.egit.github.core.RepositoryId;
+import org.eclipse.egit.github.core.client.GitHubRequest;
+import org.eclipse.egit.github.core.client.GitHubResponse;
+import org.eclipse.egit.github.core.client.RequestException;
+import org.eclipse.egit.github.core.service.IssueService;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class GitHubClientExtendedTests {
+
+    private static final String RATE_LIMIT = "{\"rate\": {\"limit\": 5000, \"remaining\": 4999, \"reset\": 0}}";
+
+    private static GitHubRequest request(String uri) {
+        GitHubRequest request = new GitHubRequest();
+        request.setUri(uri);
+        request.setType(new TypeToken<List<Issue>>() {}.getType());
+        return request;
+    }
+
+    @Test
+    public void testConnectionReused() throws IOException {
+        try (StubGitHubServer server = new StubGitHubServer((path, ifNoneMatch) ->
+            new StubGitHubServer.Response(200, "[]", "etag"))) {
+            GitHubClientExtended client = server.createClient();
+
+            for (int i = 0; i < 20; i++) {
+                client.getIfNoneMatch(request("/repos/test/test/issues"), Optional.empty());
+            }
+
+            assertEquals(20, server.getRequestCount());
+            assertEquals(1, server.getConnectionCount());
+        }
+    }
+
+    @Test
+    public void testConnectionReusedAfterNotModified() throws IOException {
+        try (StubGitHubServer server = new StubGitHubServer((path, ifNoneMatch) ->
+            ifNoneMatch == null
+                ? new StubGitHubServer.Response(200, "[]", "etag")
+                : new StubGitHubServer.Response(304, null, "etag"))) {
+            GitHubClientExtended client = server.createClient();
+
+            for (int i = 0; i < 10; i++) {
+                client.getIfNoneMatch(request("/repos/test/test/issues"), Optional.empty());
+                client.getIfNoneMatch(request("/repos/test/test/issues"), Optional.of("\"etag\""));
+            }
+
+            assertEquals(20, server.getRequestCount());
+            assertEquals(1, server.getConnectionCount());
+        }
+    }
+
+    @Test
+    public void testConnectionReusedAfterError() throws IOException {
+        try (StubGitHubServer server = new StubGitHubServer((path, ifNoneMatch) ->
+            new StubGitHubServer.Response(500, "{\"message\": \"Server error\"}", null))) {
+            GitHubClientExtended client = server.createClient();
+
+            for (int i = 0; i < 10; i++) {
+                try {
+                    client.getRateLimitResetTime();
+                    fail();
+                } catch (IOException e) {
+                    assertTrue(e.getMessage().startsWith("500"));
+                }
+            }
+
+            assertEquals(10, server.getRequestCount());
+            assertEquals(1, server.getConnectionCount());
+        }
+    }
+
+    private static String issuesJson(int count) {
+        return IntStream.rangeClosed(1, count)
+            .mapToObj(i -> "{\"number\": " + i + ", \"title\": \"Issue " + i + "\", \"state\": \"open\"}")
+            .collect(Collectors.joining(", ", "[", "]"));
+    }
+
+    @Test
+    public void testCompressedResponse() throws IOException {
+        try (StubGitHubServer server = new StubGitHubServer((path, ifNoneMatch) ->
+            new StubGitHubServer.Response(200, issuesJson(500), "etag"))) {
+            GitHubClientExtended client = server.createClient();
+
+            GitHubResponse response = client.getIfNoneMatch(request("/repos/test/test/issues"),
+                Optional.empty()).right;
+
+            List<Issue> issues = new ArrayList<>(PageFetcher.getItems(response));
+            assertEquals(500, issues.size());
+            assertEquals("Issue 500", issues.get(499).getTitle());
+            assertEquals(1, server.getCompressedResponseCount());
+        }
+    }
+
+    @Test
+    public void testCompressedPages() throws IOException {
+        try (StubGitHubServer server = new StubGitHubServer((path, ifNoneMatch) ->
+            new StubGitHubServer.Response(200, issuesJson(30), null))) {
+            GitHubClientExtended client = server.createClient();
+
+            List<Issue> issues = new IssueService(client).getIssues(RepositoryId.createFromId("test/test"), null);
+
+            assertEquals(30, issues.size());
+            assertEquals("Issue 1", issues.get(0).getTitle());
+            assertEquals(1, server.getCompressedResponseCount());
+        }
+    }
+
+    @Test
+    public void testCompressedError() throws IOException {
+        try (StubGitHubServer server = new StubGitHubServer((path, ifNoneMatch) ->
+            new StubGitHubServer.Response(404, "{\"message\": \"Not Found\"}", null))) {
+            GitHubClientExtended client = server.createClient();
+
+            try {
+                client.getIfNoneMatch(request("/repos/test/test/issues"), Optional.empty());
+                fail();
+            } catch (RequestException e) {
+                assertEquals(404, e.getStatus());
+                assertEquals("Not Found", e.getError().getMessage());
+            }
+            assertEquals(1, server.getCompressedResponseCount());
+        }
+    }
+
+    @Test
+    public void testConcurrentRequests() throws IOException {
+        try (StubGitHubServer server = new StubGitHubServer((path, ifNoneMatch) ->
+            new StubGitHubServer.Response(200, RATE_LIMIT, null))) {
+            GitHubClientExtended client = server.createClient();
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+
+            List<CompletableFuture<Void>> requests = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                requests.add(CompletableFuture.runAsync(() -> {
+                    for (int j = 0; j < 10; j++) {
+                        try {
+                            assertEquals(4999, (int) client.getRateLimitResetTime().left);
+                        } catch (IOException e) {
+                            throw new CompletionException(e);
+                        }
+                    }
+                }, executor));
+            }
+            CompletableFuture.allOf(requests.toArray(new CompletableFuture[requests.size()])).join();
+            executor.shutdown();
+
+            // Each thread keeps reusing a connection, not making one per request
+            assertEquals(40, server.getRequestCount());
+            assertTrue(server.getConnectionCount() <= 4);
+        }
+    }
+}
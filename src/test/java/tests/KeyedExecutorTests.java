@@ -0,0 +1,76 @@
+package tests;
+
+import org.junit.Test;
+import util.KeyedExecutor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class KeyedExecutorTests {
+
+    @Test
+    public void testSameKeyRunsInOrder() throws InterruptedException {
+        KeyedExecutor executor = new KeyedExecutor(4);
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(100);
+
+        for (int i = 0; i < 100; i++) {
+            int task = i;
+            executor.execute("repo", () -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                order.add(task);
+                running.decrementAndGet();
+                done.countDown();
+            });
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(1, maxRunning.get());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, (int) order.get(i));
+        }
+    }
+
+    @Test
+    public void testDifferentKeysRunInParallel() throws InterruptedException {
+        KeyedExecutor executor = new KeyedExecutor(2);
+        CountDownLatch otherRepoDone = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+
+        // Would never finish if the second task had to wait for the first
+        executor.execute("repo1", () -> {
+            try {
+                if (otherRepoDone.await(10, TimeUnit.SECONDS)) {
+                    done.countDown();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        executor.execute("repo2", otherRepoDone::countDown);
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testFailedTaskDoesNotStopKey() throws InterruptedException {
+        KeyedExecutor executor = new KeyedExecutor(1);
+        CountDownLatch done = new CountDownLatch(1);
+
+        executor.execute("repo", () -> {
+            throw new IllegalStateException("Task failed");
+        });
+        executor.execute("repo", done::countDown);
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+    }
+}
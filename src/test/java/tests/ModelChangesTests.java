@@ -0,0 +1,87 @@
+package tests;
+
+import backend.UpdateSignature;
+import backend.resource.Model;
+import backend.resource.ModelChanges;
+import backend.resource.TurboIssue;
+import backend.resource.TurboLabel;
+import backend.stub.DummyRepo;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ModelChangesTests {
+
+    private static final String REPO = "test/test";
+
+    private static Model createModel() {
+        DummyRepo dummy = new DummyRepo();
+        return new Model(REPO,
+            dummy.getIssues(REPO),
+            dummy.getLabels(REPO),
+            dummy.getMilestones(REPO),
+            dummy.getCollaborators(REPO),
+            new UpdateSignature("issues", "labels", "milestones", "collaborators", new Date()));
+    }
+
+    @Test
+    public void testNothingChanged() {
+        Model model = createModel();
+        ModelChanges changes = ModelChanges.between(model, new Model(model));
+
+        assertTrue(changes.isEmpty());
+        assertFalse(changes.affectsAllIssues());
+        assertEquals(REPO, changes.repoId);
+    }
+
+    @Test
+    public void testIssueChanges() {
+        Model model = createModel();
+
+        List<TurboIssue> issues = new ArrayList<>(model.getIssues());
+        TurboIssue changed = new TurboIssue(issues.get(1));
+        changed.setTitle("Changed");
+        issues.set(1, changed);
+        TurboIssue removed = issues.remove(0);
+        TurboIssue added = new TurboIssue(REPO, 11, "New");
+        issues.add(added);
+
+        Model updated = new Model(REPO, issues, model.getLabels(), model.getMilestones(), model.getUsers(),
+            model.getUpdateSignature());
+        ModelChanges changes = ModelChanges.between(model, updated);
+
+        assertSame(updated, changes.updated);
+        assertEquals(Collections.singletonList(added), changes.issues.added);
+        assertEquals(Collections.singletonList(changed), changes.issues.changed);
+        assertEquals(Collections.singletonList(removed), changes.issues.removed);
+        assertFalse(changes.isEmpty());
+        assertFalse(changes.affectsAllIssues());
+    }
+
+    @Test
+    public void testLabelChanges() {
+        Model model = createModel();
+
+        List<TurboLabel> labels = new ArrayList<>(model.getLabels());
+        TurboLabel added = new TurboLabel(REPO, "Label 12");
+        labels.add(added);
+
+        Model updated = new Model(REPO, model.getIssues(), labels, model.getMilestones(), model.getUsers(),
+            model.getUpdateSignature());
+        ModelChanges changes = ModelChanges.between(model, updated);
+
+        assertEquals(Collections.singletonList(added), changes.labels.added);
+        assertTrue(changes.issues.isEmpty());
+        assertTrue(changes.milestones.isEmpty());
+        assertTrue(changes.users.isEmpty());
+        assertTrue(changes.affectsAllIssues());
+    }
+}
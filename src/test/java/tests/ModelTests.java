@@ -10,7 +10,12 @@ import org.junit.Test;
 import java.util.*;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class ModelTests {
 
@@ -49,20 +54,49 @@ public class ModelTests {
     @Test
     public void immutability() {
         Model other = new Model(modelUpdated);
-        other.getIssues().add(new TurboIssue(REPO, 11, ""));
+        assertUnsupported(() -> other.getIssues().add(new TurboIssue(REPO, 11, "")));
+        assertUnsupported(() -> other.getLabels().add(new TurboLabel(REPO, "aksdjl")));
+        assertUnsupported(() -> other.getMilestones().add(new TurboMilestone(REPO, 11, "")));
+        assertUnsupported(() -> other.getUsers().add(new TurboUser(REPO, "")));
         assertEquals(modelUpdated, other);
 
-        other = new Model(modelUpdated);
-        other.getLabels().add(new TurboLabel(REPO, "aksdjl"));
-        assertEquals(modelUpdated, other);
+        // Changes to the lists a model was constructed from do not affect it
+        List<TurboIssue> issues = new ArrayList<>(modelUpdated.getIssues());
+        Model model = new Model(REPO, issues, modelUpdated.getLabels(), modelUpdated.getMilestones(),
+            modelUpdated.getUsers(), modelUpdated.getUpdateSignature());
+        issues.add(new TurboIssue(REPO, 11, ""));
+        assertEquals(modelUpdated, model);
+        assertFalse(model.getIssueById(11).isPresent());
+    }
 
-        other = new Model(modelUpdated);
-        other.getMilestones().add(new TurboMilestone(REPO, 11, ""));
-        assertEquals(modelUpdated, other);
+    @Test
+    public void structuralSharing() {
+        // Updating only some resources shares the others with the previous model
+        List<TurboLabel> labels = new ArrayList<>(modelUpdated.getLabels());
+        labels.add(new TurboLabel(REPO, "Label 12"));
+        Model updated = new Model(REPO, modelUpdated.getIssues(), labels, modelUpdated.getMilestones(),
+            modelUpdated.getUsers(), modelUpdated.getUpdateSignature());
+
+        assertSame(modelUpdated.getIssues(), updated.getIssues());
+        assertSame(modelUpdated.getMilestones(), updated.getMilestones());
+        assertSame(modelUpdated.getUsers(), updated.getUsers());
+        assertNotSame(modelUpdated.getLabels(), updated.getLabels());
+        assertTrue(updated.getLabelByActualName("Label 12").isPresent());
+        assertFalse(modelUpdated.getLabelByActualName("Label 12").isPresent());
+        assertEquals(modelUpdated.getIssueById(1), updated.getIssueById(1));
+
+        Model copy = new Model(modelUpdated);
+        assertSame(modelUpdated.getIssues(), copy.getIssues());
+        assertSame(modelUpdated.getLabels(), copy.getLabels());
+    }
 
-        other = new Model(modelUpdated);
-        other.getUsers().add(new TurboUser(REPO, ""));
-        assertEquals(modelUpdated, other);
+    private static void assertUnsupported(Runnable operation) {
+        try {
+            operation.run();
+            fail("The model was modified");
+        } catch (UnsupportedOperationException e) {
+            // Expected
+        }
     }
 
     @Test
@@ -1,7 +1,9 @@
 package tests;
 
 import backend.RepoIO;
+import backend.resource.Model;
 import backend.resource.MultiModel;
+import backend.resource.TurboIssue;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import prefs.Preferences;
@@ -9,10 +11,14 @@ import ui.UI;
 import ui.components.StatusUIStub;
 import util.events.EventDispatcherStub;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.ExecutionException;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 public class MultiModelTest {
@@ -53,4 +59,94 @@ public class MultiModelTest {
         assertEquals(false, models.getModelById(repoId).isPresent());
     }
 
+    @Test
+    public void testReplaceModel() throws ExecutionException, InterruptedException {
+        MultiModel models = new MultiModel(new Preferences(true));
+        RepoIO testIO = new RepoIO(true, false);
+        models.queuePendingRepository("dummy1/dummy1");
+        models.queuePendingRepository("dummy2/dummy2");
+        testIO.openRepository("dummy1/dummy1").thenApply(models::addPending).get();
+        testIO.openRepository("dummy2/dummy2").thenApply(models::addPending).get();
+
+        // Only the model of the same repository is replaced
+        Model replacement = new Model("dummy1/dummy1");
+        models.replace(replacement);
+        assertSame(replacement, models.get("dummy1/dummy1"));
+        assertEquals(10, models.get("dummy2/dummy2").getIssues().size());
+
+        // Repositories that are not open are not added
+        models.removeRepoModelById("dummy2/dummy2");
+        models.replace(new Model("dummy2/dummy2"));
+        assertFalse(models.getModelById("dummy2/dummy2").isPresent());
+    }
+
+    @Test
+    public void testUpdatedIssuesMarkedUnread() {
+        final String repoId = "dummy/dummy";
+        MultiModel models = new MultiModel(new Preferences(true));
+        models.queuePendingRepository(repoId);
+        models.addPending(createModel(repoId, 10));
+        models.get(repoId).getIssues().forEach(issue -> issue.setIsCurrentlyRead(true));
+
+        // Issue ids need not be contiguous
+        List<TurboIssue> issues = new ArrayList<>(models.get(repoId).getIssues());
+        TurboIssue changed = new TurboIssue(issues.get(4));
+        changed.setTitle("Changed");
+        issues.set(4, changed);
+        issues.add(new TurboIssue(repoId, 100, "New"));
+        models.replace(new Model(repoId, issues, new ArrayList<>(), new ArrayList<>(), new ArrayList<>()));
+
+        for (TurboIssue issue : models.get(repoId).getIssues()) {
+            boolean isUpdated = issue.getId() == 5 || issue.getId() == 100;
+            assertEquals(!isUpdated, issue.isCurrentlyRead());
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void testUpdatedIssuesMarkedUnreadLargeRepo() {
+        final String repoId = "dummy/dummy";
+        final int size = 100000;
+        MultiModel models = new MultiModel(new Preferences(true));
+        models.queuePendingRepository(repoId);
+        models.addPending(createModel(repoId, size));
+        models.get(repoId).getIssues().forEach(issue -> issue.setIsCurrentlyRead(true));
+
+        // A mass relabel of every third issue
+        List<TurboIssue> issues = new ArrayList<>(models.get(repoId).getIssues());
+        for (int i = 2; i < size; i += 3) {
+            TurboIssue changed = new TurboIssue(issues.get(i));
+            changed.setLabels(Collections.singletonList("relabelled"));
+            issues.set(i, changed);
+        }
+        models.replace(new Model(repoId, issues, new ArrayList<>(), new ArrayList<>(), new ArrayList<>()));
+
+        for (TurboIssue issue : models.get(repoId).getIssues()) {
+            assertEquals(issue.getId() % 3 != 0, issue.isCurrentlyRead());
+        }
+    }
+
+    @Test
+    public void testReadersSeeSnapshots() {
+        final String repoId = "dummy/dummy";
+        MultiModel models = new MultiModel(new Preferences(true));
+        models.queuePendingRepository(repoId);
+        models.addPending(createModel(repoId, 10));
+
+        List<TurboIssue> before = models.getIssues();
+        assertSame(before, models.getIssues());
+
+        models.replace(createModel(repoId, 20));
+
+        // What was read before is left as it was
+        assertEquals(10, before.size());
+        assertEquals(20, models.getIssues().size());
+    }
+
+    private static Model createModel(String repoId, int issueCount) {
+        List<TurboIssue> issues = new ArrayList<>(issueCount);
+        for (int id = 1; id <= issueCount; id++) {
+            issues.add(new TurboIssue(repoId, id, "Issue " + id));
+        }
+        return new Model(repoId, issues, new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+    }
 }
@@ -0,0 +1,129 @@
+package tests;
+
+import backend.UpdateSignature;
+import backend.resource.Model;
+import backend.resource.ModelChanges;
+import backend.resource.MultiModel;
+import backend.resource.TurboIssue;
+import filter.Parser;
+import filter.expression.FilterExpression;
+import filter.expression.Qualifier;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import prefs.Preferences;
+import ui.GUIController;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PanelUpdateTests {
+
+    private static final String REPO = "test/test";
+
+    private final LocalDateTime now = LocalDateTime.now();
+
+    private Model model;
+    private MultiModel models;
+
+    @Before
+    public void setup() {
+        Qualifier.setCurrentTime(now);
+
+        TurboIssue recent = new TurboIssue(REPO, 1, "Issue 1");
+        recent.setUpdatedAt(now.minusHours(20));
+        TurboIssue old = new TurboIssue(REPO, 2, "Issue 2");
+        old.setUpdatedAt(now.minusDays(3));
+        model = new Model(REPO, Arrays.asList(recent, old), new ArrayList<>(), new ArrayList<>(), new ArrayList<>(),
+            new UpdateSignature("issues", "labels", "milestones", "collaborators", new Date()));
+
+        models = new MultiModel(new Preferences(true));
+        models.queuePendingRepository(REPO);
+        models.addPending(model);
+        models.setDefaultRepo(REPO);
+    }
+
+    @After
+    public void teardown() {
+        Qualifier.setCurrentTime(null);
+    }
+
+    private List<TurboIssue> filter(FilterExpression expression) {
+        List<TurboIssue> shown = new ArrayList<>();
+        models.getIssues().stream()
+            .filter(issue -> Qualifier.process(models, expression, issue))
+            .forEach(shown::add);
+        return shown;
+    }
+
+    private Model withTitle(int id, String title) {
+        List<TurboIssue> issues = new ArrayList<>(model.getIssues());
+        TurboIssue changed = new TurboIssue(issues.get(id - 1));
+        changed.setTitle(title);
+        issues.set(id - 1, changed);
+        return new Model(REPO, issues, model.getLabels(), model.getMilestones(), model.getUsers(),
+            model.getUpdateSignature());
+    }
+
+    @Test
+    public void testUnchangedPanelNotAffected() {
+        FilterExpression expression = Parser.parse("id:1");
+        List<TurboIssue> shown = filter(expression);
+
+        assertFalse(GUIController.isAffected(shown, expression, models,
+            Optional.of(ModelChanges.between(model, model))));
+        assertFalse(GUIController.isAffected(shown, expression, models,
+            Optional.of(ModelChanges.between(model, withTitle(2, "Changed")))));
+    }
+
+    @Test
+    public void testChangedPanelAffected() {
+        FilterExpression expression = Parser.parse("id:1");
+        List<TurboIssue> shown = filter(expression);
+
+        assertTrue(GUIController.isAffected(shown, expression, models,
+            Optional.of(ModelChanges.between(model, withTitle(1, "Changed")))));
+        assertTrue(GUIController.isAffected(shown, expression, models, Optional.empty()));
+        assertTrue(GUIController.isAffected(Collections.emptyList(), Parser.parse("title:Changed"), models,
+            Optional.of(ModelChanges.between(model, withTitle(2, "Changed")))));
+    }
+
+    @Test
+    public void testTimeRelativePanelAlwaysAffected() {
+        ModelChanges nothingChanged = ModelChanges.between(model, model);
+
+        for (String filterText : Arrays.asList("updated:<24", "id:2 || updated:<24", "-updated-others:>2",
+                                               "updated-self:<2 sort:updated")) {
+            FilterExpression expression = Parser.parse(filterText);
+            assertTrue(Qualifier.isTimeRelative(expression));
+            assertTrue(GUIController.isAffected(filter(expression), expression, models,
+                Optional.of(nothingChanged)));
+        }
+        assertFalse(Qualifier.isTimeRelative(Parser.parse("id:1 sort:updated")));
+    }
+
+    @Test
+    public void testAgedIssueDroppedOnRefreshWithoutChanges() {
+        FilterExpression expression = Parser.parse("updated:<24");
+        List<TurboIssue> shown = filter(expression);
+        assertEquals(1, shown.size());
+        assertEquals(1, shown.get(0).getId());
+
+        // A refresh that changed nothing, after issue 1 was last updated more than a day ago
+        Qualifier.setCurrentTime(now.plusHours(10));
+        ModelChanges nothingChanged = ModelChanges.between(model, model);
+        models.replace(nothingChanged);
+
+        assertTrue(GUIController.isAffected(shown, expression, models, Optional.of(nothingChanged)));
+        assertTrue(filter(expression).isEmpty());
+    }
+}
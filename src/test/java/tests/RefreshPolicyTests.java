@@ -0,0 +1,104 @@
+package tests;
+
+import backend.RefreshPolicy;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RefreshPolicyTests {
+
+    private static final String REPO = "dummy/dummy";
+    private static final long MIN = TimeUnit.MINUTES.toMillis(1);
+    private static final long MAX = TimeUnit.MINUTES.toMillis(10);
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+    @Test
+    public void testNewRepoDue() {
+        RefreshPolicy policy = new RefreshPolicy(MIN, MAX);
+        assertTrue(policy.isDue(REPO, 0));
+        assertEquals(MIN, policy.getInterval(REPO));
+    }
+
+    @Test
+    public void testDueAfterInterval() {
+        RefreshPolicy policy = new RefreshPolicy(MIN, MAX);
+        policy.onRefreshed(REPO, true, 0);
+
+        assertFalse(policy.isDue(REPO, MIN / 2));
+        assertTrue(policy.isDue(REPO, MIN));
+    }
+
+    @Test
+    public void testIdleRepoRefreshedLessOften() {
+        RefreshPolicy policy = new RefreshPolicy(MIN, MAX);
+        policy.onRefreshed(REPO, true, 0);
+
+        long time = 0;
+        long previousInterval = MIN;
+        for (int i = 0; i < 3; i++) {
+            time += policy.getInterval(REPO);
+            policy.onRefreshed(REPO, false, time);
+            assertTrue(policy.getInterval(REPO) > previousInterval);
+            previousInterval = policy.getInterval(REPO);
+        }
+
+        for (int i = 0; i < 20; i++) {
+            time += policy.getInterval(REPO);
+            policy.onRefreshed(REPO, false, time);
+        }
+        assertEquals(MAX, policy.getInterval(REPO));
+        assertFalse(policy.isDue(REPO, time + MIN));
+    }
+
+    @Test
+    public void testBusyRepoRefreshedMoreOften() {
+        RefreshPolicy policy = new RefreshPolicy(MIN, MAX);
+        policy.onRefreshed(REPO, true, 0);
+        for (int i = 0; i < 20; i++) {
+            policy.onRefreshed(REPO, false, 0);
+        }
+        assertEquals(MAX, policy.getInterval(REPO));
+
+        policy.onRefreshed(REPO, true, 0);
+        assertEquals(MAX / 2, policy.getInterval(REPO));
+        for (int i = 0; i < 10; i++) {
+            policy.onRefreshed(REPO, true, 0);
+        }
+        assertEquals(MIN, policy.getInterval(REPO));
+    }
+
+    @Test
+    public void testIntervalsStretchedWhenQuotaRunsLow() {
+        RefreshPolicy policy = new RefreshPolicy(MIN, MAX);
+        policy.onRefreshed("dummy/a", true, 0);
+        policy.onRefreshed("dummy/b", true, 0);
+
+        // Two repositories changing every minute use 8 requests a minute, 480 before the reset
+        policy.onRateLimit(5000, HOUR, 0);
+        assertEquals(MIN, policy.getInterval("dummy/a"));
+
+        policy.onRateLimit(240, HOUR, 0);
+        assertEquals(2 * MIN, policy.getInterval("dummy/a"));
+        assertEquals(2 * MIN, policy.getInterval("dummy/b"));
+
+        // Never beyond the maximum
+        policy.onRateLimit(0, HOUR, 0);
+        assertEquals(MAX, policy.getInterval("dummy/a"));
+
+        // The rate limit has reset
+        policy.onRateLimit(5000, 2 * HOUR, HOUR);
+        assertEquals(MIN, policy.getInterval("dummy/a"));
+    }
+
+    @Test
+    public void testForgottenRepoDue() {
+        RefreshPolicy policy = new RefreshPolicy(MIN, MAX);
+        policy.onRefreshed(REPO, true, 0);
+        policy.forget(REPO);
+        assertTrue(policy.isDue(REPO, 1));
+    }
+}
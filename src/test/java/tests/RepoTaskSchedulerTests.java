@@ -0,0 +1,208 @@
+package tests;
+
+import backend.RepoTaskScheduler;
+import backend.interfaces.RepoTask;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RepoTaskSchedulerTests {
+
+    /**
+     * Records the order in which tasks are started.
+     */
+    private static class NamedTask extends RepoTask<String> {
+
+        private final String name;
+        private final Priority priority;
+        private final List<String> started;
+
+        NamedTask(String name, Priority priority, List<String> started) {
+            super(null, null);
+            this.name = name;
+            this.priority = priority;
+            this.started = started;
+        }
+
+        @Override
+        public Priority getPriority() {
+            return priority;
+        }
+
+        @Override
+        public void run() {
+            started.add(name);
+            response.complete(name);
+        }
+    }
+
+    /**
+     * Updates a repository, recording the order in which tasks are started.
+     */
+    private static class UpdateTask extends NamedTask {
+
+        private final String repoId;
+
+        UpdateTask(String name, String repoId, List<String> started) {
+            super(name, Priority.BACKGROUND, started);
+            this.repoId = repoId;
+        }
+
+        @Override
+        public Optional<String> getUpdatedRepoId() {
+            return Optional.of(repoId);
+        }
+    }
+
+    private static RepoTaskScheduler createScheduler(AtomicInteger remaining, Runnable checkRateLimit) {
+        return new RepoTaskScheduler(Runnable::run, remaining::get, () -> {
+            checkRateLimit.run();
+            return CompletableFuture.completedFuture(null);
+        }, 50);
+    }
+
+    @Test
+    public void testTasksStartedWhileRequestsRemain() {
+        List<String> started = Collections.synchronizedList(new ArrayList<>());
+        RepoTaskScheduler scheduler = createScheduler(new AtomicInteger(5000), () -> {});
+
+        scheduler.schedule(new NamedTask("update", RepoTask.Priority.BACKGROUND, started));
+        scheduler.schedule(new NamedTask("metadata", RepoTask.Priority.VISIBLE, started));
+        scheduler.schedule(new NamedTask("labels", RepoTask.Priority.USER_ACTION, started));
+
+        assertEquals(Arrays.asList("update", "metadata", "labels"), started);
+        assertEquals(0, scheduler.getDeferredCount());
+    }
+
+    @Test
+    public void testTasksStartedBeforeFirstRequest() {
+        List<String> started = Collections.synchronizedList(new ArrayList<>());
+        RepoTaskScheduler scheduler = createScheduler(new AtomicInteger(-1), () -> {});
+
+        scheduler.schedule(new NamedTask("update", RepoTask.Priority.BACKGROUND, started));
+
+        assertEquals(Collections.singletonList("update"), started);
+    }
+
+    @Test
+    public void testBackgroundTasksDeferred() {
+        List<String> started = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger remaining = new AtomicInteger(RepoTaskScheduler.BACKGROUND_RESERVE - 1);
+        RepoTaskScheduler scheduler = createScheduler(remaining, () -> {});
+
+        scheduler.schedule(new NamedTask("update", RepoTask.Priority.BACKGROUND, started));
+        scheduler.schedule(new NamedTask("metadata", RepoTask.Priority.VISIBLE, started));
+        scheduler.schedule(new NamedTask("labels", RepoTask.Priority.USER_ACTION, started));
+
+        assertEquals(Arrays.asList("metadata", "labels"), started);
+        assertEquals(1, scheduler.getDeferredCount());
+    }
+
+    @Test
+    public void testOnlyUserActionsNearRateLimit() {
+        List<String> started = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger remaining = new AtomicInteger(RepoTaskScheduler.VISIBLE_RESERVE - 1);
+        RepoTaskScheduler scheduler = createScheduler(remaining, () -> {});
+
+        scheduler.schedule(new NamedTask("update", RepoTask.Priority.BACKGROUND, started));
+        scheduler.schedule(new NamedTask("metadata", RepoTask.Priority.VISIBLE, started));
+        scheduler.schedule(new NamedTask("labels", RepoTask.Priority.USER_ACTION, started));
+
+        assertEquals(Collections.singletonList("labels"), started);
+        assertEquals(2, scheduler.getDeferredCount());
+    }
+
+    @Test
+    public void testDeferredTasksStartedByPriorityOnceRateLimitResets()
+        throws InterruptedException, ExecutionException, TimeoutException {
+
+        List<String> started = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger remaining = new AtomicInteger(0);
+        AtomicInteger checks = new AtomicInteger();
+        RepoTaskScheduler scheduler = createScheduler(remaining, () -> {
+            // The limit resets after the first check
+            if (checks.incrementAndGet() > 1) {
+                remaining.set(5000);
+            }
+        });
+
+        NamedTask update = new NamedTask("update", RepoTask.Priority.BACKGROUND, started);
+        scheduler.schedule(update);
+        scheduler.schedule(new NamedTask("metadata", RepoTask.Priority.VISIBLE, started));
+        assertTrue(started.isEmpty());
+        assertFalse(update.response.isDone());
+
+        assertEquals("update", update.response.get(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("metadata", "update"), started);
+        assertEquals(2, checks.get());
+        assertEquals(0, scheduler.getDeferredCount());
+    }
+
+    @Test
+    public void testDeferredUpdatesOfRepoReplaced()
+        throws InterruptedException, ExecutionException, TimeoutException {
+
+        List<String> started = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger remaining = new AtomicInteger(RepoTaskScheduler.BACKGROUND_RESERVE - 1);
+        AtomicInteger checks = new AtomicInteger();
+        RepoTaskScheduler scheduler = createScheduler(remaining, () -> {
+            // Enough updates are scheduled before the limit resets
+            if (checks.incrementAndGet() > 1) {
+                remaining.set(5000);
+            }
+        });
+
+        List<UpdateTask> updates = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            UpdateTask update = new UpdateTask("update " + i, "owner/repo", started);
+            updates.add(update);
+            scheduler.schedule(update);
+        }
+        UpdateTask other = new UpdateTask("other", "owner/other", started);
+        scheduler.schedule(other);
+        assertEquals(2, scheduler.getDeferredCount());
+
+        // Only the latest update of the repository is run, and the others share its result
+        for (UpdateTask update : updates) {
+            assertEquals("update 4", update.response.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals("other", other.response.get(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("update 4", "other"), started);
+        assertEquals(0, scheduler.getDeferredCount());
+    }
+
+    @Test
+    public void testUpdateOfRepoSharesRunningUpdate() {
+        List<String> started = Collections.synchronizedList(new ArrayList<>());
+        List<Runnable> running = new ArrayList<>();
+        RepoTaskScheduler scheduler = new RepoTaskScheduler(running::add, () -> 5000,
+            () -> CompletableFuture.completedFuture(null));
+
+        UpdateTask first = new UpdateTask("first", "owner/repo", started);
+        UpdateTask second = new UpdateTask("second", "Owner/Repo", started);
+        scheduler.schedule(first);
+        scheduler.schedule(second);
+        assertEquals(1, running.size());
+
+        running.get(0).run();
+        assertEquals(Collections.singletonList("first"), started);
+        assertEquals("first", second.response.join());
+
+        // Once it has finished, the repository is updated again
+        scheduler.schedule(new UpdateTask("third", "owner/repo", started));
+        assertEquals(2, running.size());
+    }
+}
@@ -1,23 +1,50 @@
 package tests;
 
 import backend.RepoIO;
+import backend.UpdateSignature;
+import backend.binary.BinaryStore;
 import backend.interfaces.RepoStore;
+import backend.interfaces.SaveTask;
+import backend.interfaces.StoreJournal;
+import backend.interfaces.StoreTask;
 import backend.json.JSONStore;
 import backend.resource.Model;
+import backend.resource.TurboIssue;
+import backend.resource.serialization.SerializableChanges;
+import backend.resource.serialization.SerializableModel;
+import backend.stub.DummyRepo;
+import com.google.gson.JsonParser;
 import guitests.UITest;
+import org.apache.commons.lang3.StringUtils;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import ui.UI;
 import ui.components.StatusUIStub;
+import util.IOUtilities;
 import util.events.EventDispatcherStub;
 import util.events.testevents.UpdateDummyRepoEvent;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
 
 import static org.junit.Assert.*;
 
@@ -89,14 +116,269 @@ public class StoreTests {
         UI.status.clear();
     }
 
+    @Test
+    public void testLoadWithoutUpdating() throws ExecutionException, InterruptedException {
+        RepoIO testIO = new RepoIO(true, true);
+        assertFalse(testIO.isRepositoryStored("dummy1/dummy1"));
+        assertEquals(10, testIO.openRepository("dummy1/dummy1").get().getIssues().size());
+
+        RepoIO alternateIO = new RepoIO(true, true);
+        UI.events.triggerEvent(UpdateDummyRepoEvent.newIssue("dummy1/dummy1"));
+
+        // Loaded as it was stored, without the new issue
+        assertTrue(alternateIO.isRepositoryStored("DUMMY1/DUMMY1"));
+        assertEquals(10, alternateIO.loadRepository("DUMMY1/DUMMY1").get().getIssues().size());
+        assertEquals(11, alternateIO.openRepository("dummy1/dummy1").get().getIssues().size());
+    }
+
     @Test(expected = ExecutionException.class)
     public void testCorruptedJSON() throws InterruptedException, ExecutionException {
-        RepoStore.write("testrepo/testrepo", "abcde", 10);
+        RepoStore.write("testrepo/testrepo", "abcde");
 
         JSONStore jsonStore = new JSONStore();
         jsonStore.loadRepository("testrepo/testrepo").get();
     }
 
+    @Test
+    public void testInterruptedWriteKeepsPreviousFile() {
+        RepoStore.write("testrepo/testrepo", "abcde");
+
+        boolean corrupted = RepoStore.write("testrepo/testrepo", out -> {
+            out.write("{\"repoId\":".getBytes(StandardCharsets.UTF_8));
+            throw new IOException("Disk full");
+        }, RepoStore.NO_COMPRESSION);
+
+        assertTrue(corrupted);
+        assertEquals("abcde", RepoStore.read("testrepo/testrepo").get().trim());
+    }
+
+    @Test
+    public void testSaveAndLoadRoundTrip() throws InterruptedException, ExecutionException {
+        DummyRepo dummy = new DummyRepo();
+        Model model = new Model("testrepo/testrepo",
+                dummy.getIssues("testrepo/testrepo"),
+                dummy.getLabels("testrepo/testrepo"),
+                dummy.getMilestones("testrepo/testrepo"),
+                dummy.getCollaborators("testrepo/testrepo"),
+                new UpdateSignature("issues", "labels", "milestones", "collaborators", new Date()));
+
+        JSONStore jsonStore = new JSONStore();
+        jsonStore.saveRepository("testrepo/testrepo", new SerializableModel(model)).get();
+
+        assertEquals(model, jsonStore.loadRepository("testrepo/testrepo").get());
+        assertTrue(jsonStore.getStoredRepos().contains("testrepo/testrepo"));
+    }
+
+    private static Model createModel(String repoId) {
+        DummyRepo dummy = new DummyRepo();
+        return new Model(repoId,
+                dummy.getIssues(repoId),
+                dummy.getLabels(repoId),
+                dummy.getMilestones(repoId),
+                dummy.getCollaborators(repoId),
+                new UpdateSignature("issues", "labels", "milestones", "collaborators", new Date()));
+    }
+
+    /**
+     * Changes the title of the first issue and adds a new issue.
+     */
+    private static Model changeModel(Model model, String title, int newIssueId) {
+        List<TurboIssue> issues = new ArrayList<>(model.getIssues());
+        TurboIssue changed = new TurboIssue(issues.get(0));
+        changed.setTitle(title);
+        issues.set(0, changed);
+        issues.add(new TurboIssue(model.getRepoId(), newIssueId, "New issue"));
+        return new Model(model.getRepoId(), issues, model.getLabels(), model.getMilestones(), model.getUsers(),
+                new UpdateSignature("issues2", "labels", "milestones", "collaborators", new Date()));
+    }
+
+    @Test
+    public void testChangesReplayedFromJournal() throws InterruptedException, ExecutionException {
+        Model model = createModel("testrepo/testrepo");
+        JSONStore jsonStore = new JSONStore();
+        jsonStore.saveRepository("testrepo/testrepo", new SerializableModel(model)).get();
+
+        Model updated = changeModel(model, "Changed", 11);
+        SerializableChanges changes = new SerializableChanges(model, updated);
+        assertEquals(2, changes.issues.size());
+        assertNull(changes.labels);
+
+        assertFalse(jsonStore.saveChanges("testrepo/testrepo", changes, () -> new SerializableModel(updated)).get());
+        assertTrue(Files.exists(Paths.get("store/test/testrepo-testrepo.journal")));
+        assertEquals(updated, jsonStore.loadRepository("testrepo/testrepo").get());
+
+        // Writing the repository in full makes the journal unnecessary
+        jsonStore.saveRepository("testrepo/testrepo", new SerializableModel(updated)).get();
+        assertFalse(Files.exists(Paths.get("store/test/testrepo-testrepo.journal")));
+        assertEquals(updated, jsonStore.loadRepository("testrepo/testrepo").get());
+    }
+
+    @Test
+    public void testIncompleteJournalEntrySkipped() throws InterruptedException, ExecutionException, IOException {
+        Model model = createModel("testrepo/testrepo");
+        JSONStore jsonStore = new JSONStore();
+        jsonStore.saveRepository("testrepo/testrepo", new SerializableModel(model)).get();
+
+        Model updated = changeModel(model, "Changed", 11);
+        jsonStore.saveChanges("testrepo/testrepo", new SerializableChanges(model, updated),
+                () -> new SerializableModel(updated)).get();
+        // As if the program died while appending
+        Files.write(Paths.get("store/test/testrepo-testrepo.journal"),
+                "{\"issues\":[{\"id\":".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        assertEquals(updated, jsonStore.loadRepository("testrepo/testrepo").get());
+
+        Model updatedAgain = changeModel(updated, "Changed again", 12);
+        jsonStore.saveChanges("testrepo/testrepo", new SerializableChanges(updated, updatedAgain),
+                () -> new SerializableModel(updatedAgain)).get();
+        assertEquals(updatedAgain, jsonStore.loadRepository("testrepo/testrepo").get());
+    }
+
+    @Test
+    public void testJournalCompaction() throws InterruptedException, ExecutionException {
+        Model model = createModel("testrepo/testrepo");
+        BinaryStore binaryStore = new BinaryStore();
+        binaryStore.saveRepository("testrepo/testrepo", new SerializableModel(model)).get();
+
+        int newIssueId = 11;
+        while (StoreJournal.size("testrepo/testrepo") <= StoreJournal.COMPACTION_THRESHOLD / 2) {
+            Model updated = changeModel(model, "Changed " + newIssueId, newIssueId++);
+            binaryStore.saveChanges("testrepo/testrepo", new SerializableChanges(model, updated),
+                    () -> new SerializableModel(updated)).get();
+            model = updated;
+        }
+        assertEquals(model, binaryStore.loadRepository("testrepo/testrepo").get());
+
+        // One large change pushes the journal over the threshold
+        Model previous = model;
+        List<TurboIssue> issues = model.getIssues().stream()
+                .map(TurboIssue::new)
+                .collect(Collectors.toList());
+        issues.forEach(issue -> issue.setDescription(StringUtils.repeat("x", 1000)));
+        Model updated = new Model(model.getRepoId(), issues, model.getLabels(), model.getMilestones(),
+                model.getUsers(), model.getUpdateSignature());
+        binaryStore.saveChanges("testrepo/testrepo", new SerializableChanges(previous, updated),
+                () -> new SerializableModel(updated)).get();
+
+        // Compaction happens after the response, so wait for the next task to run
+        assertEquals(updated, binaryStore.loadRepository("testrepo/testrepo").get());
+        assertEquals(0, StoreJournal.size("testrepo/testrepo"));
+    }
+
+    /**
+     * Exposes the task queue of the store, with saves that only record what they would write.
+     */
+    private static class QueueingStore extends JSONStore {
+        private final List<SerializableModel> saved = Collections.synchronizedList(new ArrayList<>());
+
+        void queue(StoreTask task) {
+            addTask(task);
+        }
+
+        CompletableFuture<Boolean> queueSave(SerializableModel model) {
+            CompletableFuture<Boolean> response = new CompletableFuture<>();
+            addTask(new SaveTask("testrepo/testrepo", model, response) {
+                @Override
+                protected boolean save(String repoId, SerializableModel model) {
+                    saved.add(model);
+                    return false;
+                }
+            });
+            return response;
+        }
+
+        CountDownLatch block() {
+            CountDownLatch latch = new CountDownLatch(1);
+            queue(new StoreTask("testrepo/testrepo") {
+                @Override
+                public void run() {
+                    try {
+                        latch.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            return latch;
+        }
+    }
+
+    @Test
+    public void testPendingSavesMerged() throws InterruptedException, ExecutionException {
+        QueueingStore store = new QueueingStore();
+        CountDownLatch blocked = store.block();
+
+        List<SerializableModel> models = new ArrayList<>();
+        List<CompletableFuture<Boolean>> responses = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            models.add(new SerializableModel(createModel("testrepo/testrepo")));
+            responses.add(store.queueSave(models.get(i)));
+        }
+        blocked.countDown();
+
+        for (CompletableFuture<Boolean> response : responses) {
+            assertFalse(response.get());
+        }
+        assertEquals(1, store.saved.size());
+        assertSame(models.get(4), store.saved.get(0));
+    }
+
+    @Test
+    public void testSavesNotMergedAcrossOtherTasks() throws InterruptedException, ExecutionException {
+        QueueingStore store = new QueueingStore();
+        CountDownLatch blocked = store.block();
+
+        SerializableModel first = new SerializableModel(createModel("testrepo/testrepo"));
+        SerializableModel second = new SerializableModel(createModel("testrepo/testrepo"));
+        CompletableFuture<Boolean> firstResponse = store.queueSave(first);
+        // Must still run between the two saves
+        store.block().countDown();
+        CompletableFuture<Boolean> secondResponse = store.queueSave(second);
+        blocked.countDown();
+
+        assertFalse(firstResponse.get());
+        assertFalse(secondResponse.get());
+        assertEquals(2, store.saved.size());
+        assertSame(first, store.saved.get(0));
+        assertSame(second, store.saved.get(1));
+    }
+
+    @Test
+    public void testCompressedStore() throws InterruptedException, ExecutionException, IOException {
+        Model model = createModel("testrepo/testrepo");
+        JSONStore jsonStore = new JSONStore();
+        jsonStore.saveRepository("testrepo/testrepo", new SerializableModel(model)).get();
+        long plainSize = Files.size(Paths.get("store/test/testrepo-testrepo.json"));
+
+        JSONStore compressedStore = new JSONStore(6);
+        compressedStore.saveRepository("testrepo/testrepo", new SerializableModel(model)).get();
+        // Compressed within the checksummed file
+        assertTrue(IOUtilities.readStreaming(Paths.get("store/test/testrepo-testrepo.json"),
+            IOUtilities.skippingChecksum(in -> IOUtilities.isGzipped((byte) in.read(), (byte) in.read()))));
+        assertTrue(Files.size(Paths.get("store/test/testrepo-testrepo.json")) < plainSize);
+        assertEquals(model, compressedStore.loadRepository("testrepo/testrepo").get());
+        assertTrue(compressedStore.getStoredRepos().contains("testrepo/testrepo"));
+
+        // Compressed files are still read by stores that do not compress
+        assertEquals(model, jsonStore.loadRepository("testrepo/testrepo").get());
+    }
+
+    @Test
+    public void testJsonStoreFileIsValidJson() throws InterruptedException, ExecutionException, IOException {
+        Model model = createModel("testrepo/testrepo");
+        JSONStore jsonStore = new JSONStore();
+        jsonStore.saveRepository("testrepo/testrepo", new SerializableModel(model)).get();
+
+        // The checksum is kept beside the file rather than in it
+        String content = new String(Files.readAllBytes(Paths.get("store/test/testrepo-testrepo.json")),
+            StandardCharsets.UTF_8);
+        assertTrue(new JsonParser().parse(content).isJsonObject());
+        assertTrue(Files.exists(Paths.get("store/test/testrepo-testrepo.json.crc")));
+        assertEquals(model, jsonStore.loadRepository("testrepo/testrepo").get());
+
+        assertFalse(jsonStore.removeStoredRepo("testrepo/testrepo").get());
+        assertFalse(Files.exists(Paths.get("store/test/testrepo-testrepo.json.crc")));
+    }
+
     @Test(expected = ExecutionException.class)
     public void testNonExistentJSON() throws InterruptedException, ExecutionException {
         JSONStore jsonStore = new JSONStore();
@@ -105,7 +387,7 @@ public class StoreTests {
 
     @Test
     public void testLoadCorruptedRepository() throws InterruptedException, ExecutionException {
-        RepoStore.write("testrepo/testrepo", "abcde", 10);
+        RepoStore.write("testrepo/testrepo", "abcde");
 
         RepoIO repoIO = new RepoIO(true, true);
         Model model = repoIO.openRepository("testrepo/testrepo").get();
@@ -122,6 +404,19 @@ public class StoreTests {
         assertEquals(10, model.getIssues().size());
     }
 
+    @Test
+    public void testLoadDeletedRepoDownloadsIt() throws InterruptedException, ExecutionException, TimeoutException,
+            IOException {
+        RepoIO testIO = new RepoIO(true, true);
+        testIO.openRepository("dummy1/dummy1").get();
+        assertTrue(testIO.getStoredRepos().contains("dummy1/dummy1"));
+
+        // Loading fails, and the download that follows has to save to the store
+        Files.delete(Paths.get("store/test/dummy1-dummy1.json"));
+        Model dummy1 = testIO.openRepository("dummy1/dummy1").get(10, TimeUnit.SECONDS);
+        assertEquals(10, dummy1.getIssues().size());
+    }
+
     @Test
     public void testRemoveRepo() throws InterruptedException, ExecutionException {
         RepoIO testIO = new RepoIO(true, true);
@@ -137,6 +432,21 @@ public class StoreTests {
         assertEquals(false, Files.exists(Paths.get("store/test/dummy1-dummy1.json")));
     }
 
+    @Test
+    public void testRemoveRepoRemovesMetadata() throws InterruptedException, ExecutionException {
+        RepoIO testIO = new RepoIO(true, true);
+        Model dummy1 = testIO.openRepository("dummy1/dummy1").get();
+        Map<Integer, LocalDateTime> issues = new HashMap<>();
+        issues.put(1, dummy1.getIssues().get(0).getUpdatedAt());
+        testIO.getIssueMetadata("dummy1/dummy1", issues, 1, chunk -> {}).get();
+        assertTrue(Files.exists(Paths.get("store/test/dummy1-dummy1.metadata")));
+
+        assertFalse(testIO.removeRepository("dummy1/dummy1").get());
+
+        assertFalse(Files.exists(Paths.get("store/test/dummy1-dummy1.metadata")));
+        assertFalse(Files.exists(Paths.get("store/test/dummy1-dummy1.metadata.crc")));
+    }
+
     @After
     public void cleanup() {
         UITest.clearTestFolder();
@@ -0,0 +1,115 @@
+package tests;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import github.GitHubClientExtended;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A local HTTP server standing in for the GitHub API, which answers every request with the
+ * response given by its responder, and records the connections requests came in on.
+ * Like GitHub, it compresses bodies for clients that accept gzip.
+ */
+public class StubGitHubServer implements AutoCloseable {
+
+    /**
+     * A response with a JSON body, or none.
+     */
+    public static class Response {
+        public final int status;
+        public final String body;
+        public final String eTag;
+
+        public Response(int status, String body, String eTag) {
+            this.status = status;
+            this.body = body;
+            this.eTag = eTag;
+        }
+    }
+
+    @FunctionalInterface
+    public interface Responder {
+        Response respond(String path, String ifNoneMatch);
+    }
+
+    private final HttpServer server;
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger compressedResponses = new AtomicInteger();
+
+    public StubGitHubServer(Responder responder) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> respond(exchange, responder));
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+    }
+
+    private void respond(HttpExchange exchange, Responder responder) throws IOException {
+        requests.incrementAndGet();
+        clientPorts.add(exchange.getRemoteAddress().getPort());
+        // Otherwise the server closes the connection after responses without a body
+        exchange.getRequestBody().close();
+
+        Response response = responder.respond(exchange.getRequestURI().getPath(),
+            exchange.getRequestHeaders().getFirst("If-None-Match"));
+        if (response.eTag != null) {
+            exchange.getResponseHeaders().add("ETag", "\"" + response.eTag + "\"");
+        }
+        if (response.body == null) {
+            exchange.sendResponseHeaders(response.status, -1);
+        } else {
+            byte[] body = response.body.getBytes(StandardCharsets.UTF_8);
+            String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+            if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+                ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+                try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                    gzip.write(body);
+                }
+                body = compressed.toByteArray();
+                exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+                compressedResponses.incrementAndGet();
+            }
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(response.status, body.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(body);
+            }
+        }
+        exchange.close();
+    }
+
+    public GitHubClientExtended createClient() {
+        return new GitHubClientExtended(server.getAddress().getHostString(), server.getAddress().getPort(), "http");
+    }
+
+    public int getRequestCount() {
+        return requests.get();
+    }
+
+    public int getCompressedResponseCount() {
+        return compressedResponses.get();
+    }
+
+    /**
+     * Returns the number of connections that requests came in on.
+     */
+    public int getConnectionCount() {
+        return clientPorts.size();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
@@ -7,12 +7,20 @@ import org.eclipse.egit.github.core.User;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 public class TurboIssueTest {
 
+    private static final String REPO = "dummy/dummy";
+
     @Test
     public void turboIssueTest() {
         Issue issue = new Issue();
@@ -31,4 +39,62 @@ public class TurboIssueTest {
         assertEquals("test label", turboIssue.getLabels().get(0));
     }
 
+    @Test
+    public void testReconcile() {
+        List<TurboIssue> existing = Arrays.asList(
+            new TurboIssue(REPO, 1, "One"),
+            new TurboIssue(REPO, 2, "Two"),
+            new TurboIssue(REPO, 3, "Three"));
+        existing.get(1).setIsCurrentlyRead(true);
+
+        List<TurboIssue> changed = Arrays.asList(
+            new TurboIssue(REPO, 4, "Four"),
+            new TurboIssue(REPO, 2, "Two, renamed"));
+
+        List<TurboIssue> reconciled = TurboIssue.reconcile(REPO, existing, changed);
+
+        // Changed issues keep their places, and new ones are added in order at the end
+        assertEquals(Arrays.asList(1, 2, 3, 4), ids(reconciled));
+        assertEquals("Two, renamed", reconciled.get(1).getTitle());
+        assertTrue(reconciled.get(1).isCurrentlyRead());
+        assertFalse(reconciled.get(3).isCurrentlyRead());
+
+        // The given lists are left as they were
+        assertEquals("Two", existing.get(1).getTitle());
+        assertEquals(3, existing.size());
+    }
+
+    @Test(timeout = 5000)
+    public void testReconcileLargeRepo() {
+        int size = 100000;
+        List<TurboIssue> existing = new ArrayList<>(size);
+        for (int id = 1; id <= size; id++) {
+            existing.add(new TurboIssue(REPO, id, "Issue " + id));
+        }
+
+        // A mass relabel of every third issue, and some new issues
+        List<TurboIssue> changed = new ArrayList<>();
+        for (int id = 3; id <= size; id += 3) {
+            TurboIssue issue = new TurboIssue(REPO, id, "Issue " + id);
+            issue.setLabels(Collections.singletonList("relabelled"));
+            changed.add(issue);
+        }
+        for (int id = size + 1; id <= size + 1000; id++) {
+            changed.add(new TurboIssue(REPO, id, "Issue " + id));
+        }
+
+        List<TurboIssue> reconciled = TurboIssue.reconcile(REPO, existing, changed);
+
+        assertEquals(size + 1000, reconciled.size());
+        for (int i = 0; i < reconciled.size(); i++) {
+            TurboIssue issue = reconciled.get(i);
+            assertEquals(i + 1, issue.getId());
+            boolean isRelabelled = issue.getId() <= size && issue.getId() % 3 == 0;
+            assertEquals(isRelabelled, issue.getLabels().contains("relabelled"));
+        }
+    }
+
+    private static List<Integer> ids(List<TurboIssue> issues) {
+        return issues.stream().map(TurboIssue::getId).collect(Collectors.toList());
+    }
 }
@@ -0,0 +1,169 @@
+package tests;
+
+import backend.resource.Model;
+import backend.resource.TurboIssue;
+import backend.github.EventFeed;
+import backend.github.UpdateFromEventsTask;
+import backend.stub.DummyRepo;
+import backend.stub.DummySource;
+import org.apache.commons.lang3.tuple.ImmutableTriple;
+import org.eclipse.egit.github.core.Issue;
+import org.eclipse.egit.github.core.User;
+import org.eclipse.egit.github.core.event.Event;
+import org.eclipse.egit.github.core.event.IssuesPayload;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class UpdateFromEventsTaskTests {
+
+    private static final String REPO = "dummy/dummy";
+
+    /**
+     * Answers polls of the feed with the given events, and counts the times issues are requested.
+     */
+    private static class FeedRepo extends DummyRepo {
+
+        private List<Event> events = new ArrayList<>();
+        private int issueRequests = 0;
+        private boolean isIssueRequestFailing = false;
+
+        @Override
+        public ImmutableTriple<List<Event>, String, Integer> getRepoEvents(String repoId, String eTag) {
+            return new ImmutableTriple<>(new ArrayList<>(events), "feed", 0);
+        }
+
+        @Override
+        public synchronized ImmutableTriple<List<TurboIssue>, String, Date>
+            getUpdatedIssues(String repoId, String eTag, Date lastCheckTime) {
+            issueRequests++;
+            if (isIssueRequestFailing) {
+                throw new IllegalStateException("Could not get issues");
+            }
+            return super.getUpdatedIssues(repoId, eTag, lastCheckTime);
+        }
+    }
+
+    private static Model update(FeedRepo repo, Model model, Map<String, EventFeed> feeds)
+        throws ExecutionException, InterruptedException {
+        DummySource source = new DummySource();
+        return source.addTask(new UpdateFromEventsTask(source, repo, model, feeds)).response.get();
+    }
+
+    private static Event issueEvent(String id, int issueId, String title) {
+        Issue issue = new Issue();
+        issue.setNumber(issueId);
+        issue.setTitle(title);
+        issue.setUser(new User().setLogin("test"));
+        issue.setCreatedAt(new Date(0));
+        issue.setUpdatedAt(new Date());
+        issue.setState("open");
+        issue.setLabels(new ArrayList<>());
+
+        Event event = new Event();
+        event.setId(id);
+        event.setType(Event.TYPE_ISSUES);
+        event.setPayload(new IssuesPayload().setAction("edited").setIssue(issue));
+        return event;
+    }
+
+    private static Map<String, EventFeed> feedAt(String lastEventId) {
+        Map<String, EventFeed> feeds = new ConcurrentHashMap<>();
+        feeds.put(REPO, new EventFeed("feed", lastEventId, 0, System.currentTimeMillis()));
+        return feeds;
+    }
+
+    @Test
+    public void testFirstUpdateIsFull() throws ExecutionException, InterruptedException {
+        FeedRepo repo = new FeedRepo();
+        repo.events = Arrays.asList(issueEvent("1", 1, "Title"));
+        Map<String, EventFeed> feeds = new ConcurrentHashMap<>();
+
+        update(repo, new Model(REPO), feeds);
+
+        assertEquals(1, repo.issueRequests);
+        assertEquals("1", feeds.get(REPO).lastEventId);
+    }
+
+    @Test
+    public void testFailedFullUpdateNotRecorded() throws ExecutionException, InterruptedException {
+        FeedRepo repo = new FeedRepo();
+        repo.events = Arrays.asList(issueEvent("1", 1, "Title"));
+        repo.isIssueRequestFailing = true;
+        Map<String, EventFeed> feeds = new ConcurrentHashMap<>();
+        Model model = new Model(REPO);
+
+        assertSame(model, update(repo, model, feeds));
+        // The feed is not relied on until a full update succeeds
+        assertNull(feeds.get(REPO));
+
+        repo.isIssueRequestFailing = false;
+        update(repo, model, feeds);
+        assertEquals(2, repo.issueRequests);
+        assertEquals("1", feeds.get(REPO).lastEventId);
+    }
+
+    @Test
+    public void testNoNewEvents() throws ExecutionException, InterruptedException {
+        FeedRepo repo = new FeedRepo();
+        Model model = new Model(REPO);
+
+        assertSame(model, update(repo, model, feedAt("1")));
+        assertEquals(0, repo.issueRequests);
+    }
+
+    @Test
+    public void testNotPolledBeforePollInterval() throws ExecutionException, InterruptedException {
+        FeedRepo repo = new FeedRepo();
+        repo.events = Arrays.asList(issueEvent("2", 1, "New title"), issueEvent("1", 1, "Title"));
+        Map<String, EventFeed> feeds = new ConcurrentHashMap<>();
+        long now = System.currentTimeMillis();
+        feeds.put(REPO, new EventFeed("feed", "1", now + 60000, now));
+        Model model = new Model(REPO);
+
+        assertSame(model, update(repo, model, feeds));
+        assertEquals("1", feeds.get(REPO).lastEventId);
+    }
+
+    @Test
+    public void testIssueEventsApplied() throws ExecutionException, InterruptedException {
+        FeedRepo repo = new FeedRepo();
+        Model model = new Model(REPO, new ArrayList<>(Arrays.asList(new TurboIssue(REPO, 1, "Title"),
+            new TurboIssue(REPO, 2, "Other"))), new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+
+        repo.events = Arrays.asList(issueEvent("3", 1, "Newest title"), issueEvent("2", 1, "New title"),
+            issueEvent("1", 1, "Title"));
+        Map<String, EventFeed> feeds = feedAt("1");
+        Model updated = update(repo, model, feeds);
+
+        assertEquals(0, repo.issueRequests);
+        assertEquals(2, updated.getIssues().size());
+        assertNotNull(updated.getIssueById(1).orElse(null));
+        assertEquals("Newest title", updated.getIssueById(1).get().getTitle());
+        assertEquals("3", feeds.get(REPO).lastEventId);
+    }
+
+    @Test
+    public void testMissedEventsUpdateFully() throws ExecutionException, InterruptedException {
+        FeedRepo repo = new FeedRepo();
+        // The last event applied is no longer in the feed
+        repo.events = Arrays.asList(issueEvent("3", 1, "Newest title"), issueEvent("2", 1, "New title"));
+
+        Map<String, EventFeed> feeds = feedAt("1");
+        update(repo, new Model(REPO), feeds);
+
+        assertEquals(1, repo.issueRequests);
+        assertEquals("3", feeds.get(REPO).lastEventId);
+    }
+}
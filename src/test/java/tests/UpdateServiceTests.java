@@ -13,17 +13,27 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.net.HttpURLConnection;
+import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
+import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.eclipse.egit.github.core.Milestone;
 import org.eclipse.egit.github.core.RepositoryId;
+import org.eclipse.egit.github.core.client.GitHubRequest;
+import org.eclipse.egit.github.core.client.GitHubResponse;
 import org.eclipse.egit.github.core.client.NoSuchPageException;
 import org.eclipse.egit.github.core.client.PagedRequest;
 import org.junit.Test;
+import util.Utility;
 
 public class UpdateServiceTests {
     /**
@@ -92,4 +102,193 @@ public class UpdateServiceTests {
 
         assertTrue(service.getUpdatedItems(RepositoryId.create("name", "nonexistentrepo")).isEmpty());
     }
+
+    @Test
+    public void testToIfNoneMatch()
+            throws NoSuchMethodException, SecurityException,
+            IllegalAccessException, IllegalArgumentException, InvocationTargetException {
+
+        Method method = UpdateService.class.getDeclaredMethod("toIfNoneMatch", String.class);
+        method.setAccessible(true);
+
+        assertEquals("\"123\"", method.invoke(null, "123"));
+        assertEquals("W/\"123\"", method.invoke(null, Utility.stripQuotes("W/\"123\"")));
+    }
+
+    /**
+     * Serves pages of milestones with the same title, each of which has the ETag of its title.
+     * Pages after the last are empty, and not modified responses leave out the links to other pages.
+     */
+    private static class PagedClientStub extends GitHubClientExtended {
+        private static final String EMPTY_PAGE = "empty";
+
+        private final List<String> pages;
+        private final int itemsPerPage;
+        // Pages may be requested in parallel
+        private final List<String> requests = Collections.synchronizedList(new ArrayList<>());
+
+        PagedClientStub(String... pages) {
+            this(1, pages);
+        }
+
+        PagedClientStub(int itemsPerPage, String... pages) {
+            this.pages = Arrays.asList(pages);
+            this.itemsPerPage = itemsPerPage;
+        }
+
+        @Override
+        public ImmutablePair<HttpURLConnection, GitHubResponse> getIfNoneMatch(GitHubRequest request,
+                                                                               Optional<String> ifNoneMatch)
+                throws IOException {
+            int page = ((PagedRequest<?>) request).getPage();
+            String title = page <= pages.size() ? pages.get(page - 1) : EMPTY_PAGE;
+            requests.add(page + ":" + ifNoneMatch.orElse(""));
+
+            Map<String, String> headers = new HashMap<>();
+            headers.put("ETag", "\"" + title + "\"");
+            headers.put("Date", "Tue, 15 Sep 2015 10:00:00 +0000");
+            boolean isModified = !ifNoneMatch.equals(Optional.of("\"" + title + "\""));
+            if (isModified && page < pages.size()) {
+                headers.put("Link", "<https://api.github.com/repos/name/repo/milestones?page="
+                    + (page + 1) + ">; rel=\"next\", <https://api.github.com/repos/name/repo/milestones?page="
+                    + pages.size() + ">; rel=\"last\"");
+            }
+            HttpURLConnection connection = new ConnectionStub(isModified ? 200 : 304, headers);
+            List<Milestone> items = title.equals(EMPTY_PAGE)
+                ? Collections.emptyList()
+                : Collections.nCopies(itemsPerPage, new Milestone().setTitle(title));
+            return new ImmutablePair<>(connection, new GitHubResponse(connection, isModified ? items : null));
+        }
+    }
+
+    private static class ConnectionStub extends HttpURLConnection {
+        private final Map<String, String> headers;
+
+        ConnectionStub(int responseCode, Map<String, String> headers) throws IOException {
+            super(new URL("https://api.github.com"));
+            this.responseCode = responseCode;
+            this.headers = headers;
+        }
+
+        @Override
+        public int getResponseCode() {
+            return responseCode;
+        }
+
+        @Override
+        public String getHeaderField(String name) {
+            return headers.get(name);
+        }
+
+        @Override
+        public void disconnect() {
+        }
+
+        @Override
+        public boolean usingProxy() {
+            return false;
+        }
+
+        @Override
+        public void connect() {
+        }
+    }
+
+    private static List<String> getTitles(List<Milestone> milestones) {
+        return milestones.stream().map(Milestone::getTitle).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testFirstUpdateFetchesAllPages() {
+        PagedClientStub client = new PagedClientStub("a", "b");
+        MilestoneUpdateService service = new MilestoneUpdateService(client, null);
+
+        assertEquals(Arrays.asList("a", "b"), getTitles(service.getUpdatedItems(RepositoryId.create("name", "repo"))));
+        assertEquals(Arrays.asList("1:", "2:"), client.requests);
+        assertEquals("a#b", service.getUpdatedETags());
+    }
+
+    @Test
+    public void testUnchangedPagesNotModified() {
+        PagedClientStub client = new PagedClientStub("a", "b");
+        MilestoneUpdateService service = new MilestoneUpdateService(client, "a#b");
+
+        assertTrue(service.getUpdatedItems(RepositoryId.create("name", "repo")).isEmpty());
+        // A single conditional request per page
+        assertEquals(Arrays.asList("1:\"a\"", "2:\"b\""), client.requests);
+        assertEquals("a#b", service.getUpdatedETags());
+    }
+
+    @Test
+    public void testChangedPageFetchesAllItems() {
+        PagedClientStub client = new PagedClientStub("a", "c", "d");
+        MilestoneUpdateService service = new MilestoneUpdateService(client, "a#b");
+
+        // Pages after the changed one are requested unconditionally, the unchanged one again in full
+        assertEquals(Arrays.asList("a", "c", "d"),
+            getTitles(service.getUpdatedItems(RepositoryId.create("name", "repo"))));
+        assertEquals(Arrays.asList("1:\"a\"", "2:\"b\"", "3:", "1:"), client.requests);
+        assertEquals("a#c#d", service.getUpdatedETags());
+    }
+
+    @Test
+    public void testPagesMergedInOrder() {
+        List<String> titles = IntStream.range(0, 20).mapToObj(String::valueOf).collect(Collectors.toList());
+        PagedClientStub client = new PagedClientStub(titles.toArray(new String[titles.size()]));
+        MilestoneUpdateService service = new MilestoneUpdateService(client, null);
+
+        assertEquals(titles, getTitles(service.getUpdatedItems(RepositoryId.create("name", "repo"))));
+        assertEquals(20, client.requests.size());
+        assertEquals(Utility.join(titles, "#"), service.getUpdatedETags());
+    }
+
+    @Test
+    public void testFullLastPageMarked() {
+        PagedClientStub client = new PagedClientStub(PagedRequest.PAGE_SIZE, "a", "b");
+        MilestoneUpdateService service = new MilestoneUpdateService(client, null);
+
+        assertEquals(2 * PagedRequest.PAGE_SIZE, service.getUpdatedItems(RepositoryId.create("name", "repo")).size());
+        assertEquals("a#b#+", service.getUpdatedETags());
+    }
+
+    @Test
+    public void testPageAfterFullLastPageProbed() {
+        PagedClientStub client = new PagedClientStub(PagedRequest.PAGE_SIZE, "a", "b");
+        MilestoneUpdateService service = new MilestoneUpdateService(client, "a#b#+");
+
+        // Nothing was added after the last page, which is still full; the empty page's ETag is kept
+        assertTrue(service.getUpdatedItems(RepositoryId.create("name", "repo")).isEmpty());
+        assertEquals(Arrays.asList("1:\"a\"", "2:\"b\"", "3:"), client.requests);
+        assertEquals("a#b#+empty", service.getUpdatedETags());
+    }
+
+    @Test
+    public void testPageAfterFullLastPageNotModified() {
+        PagedClientStub client = new PagedClientStub(PagedRequest.PAGE_SIZE, "a", "b");
+        MilestoneUpdateService service = new MilestoneUpdateService(client, "a#b#+empty");
+
+        // The empty page is requested conditionally too, so a quiet repository only gets 304s
+        assertTrue(service.getUpdatedItems(RepositoryId.create("name", "repo")).isEmpty());
+        assertEquals(Arrays.asList("1:\"a\"", "2:\"b\"", "3:\"empty\""), client.requests);
+        assertEquals("a#b#+empty", service.getUpdatedETags());
+    }
+
+    @Test
+    public void testPageAddedAfterFullLastPage() {
+        PagedClientStub client = new PagedClientStub(PagedRequest.PAGE_SIZE, "a", "b", "c");
+        MilestoneUpdateService service = new MilestoneUpdateService(client, "a#b#+empty");
+
+        assertEquals(3 * PagedRequest.PAGE_SIZE, service.getUpdatedItems(RepositoryId.create("name", "repo")).size());
+        assertEquals(Arrays.asList("1:\"a\"", "2:\"b\"", "3:\"empty\""), client.requests.subList(0, 3));
+        assertEquals("a#b#c#+", service.getUpdatedETags());
+    }
+
+    @Test
+    public void testPageAfterPartialLastPageNotProbed() {
+        PagedClientStub client = new PagedClientStub("a", "b");
+        MilestoneUpdateService service = new MilestoneUpdateService(client, "a#b");
+
+        assertTrue(service.getUpdatedItems(RepositoryId.create("name", "repo")).isEmpty());
+        assertEquals(Arrays.asList("1:\"a\"", "2:\"b\""), client.requests);
+    }
 }